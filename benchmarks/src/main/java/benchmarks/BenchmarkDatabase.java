@@ -0,0 +1,127 @@
+package benchmarks;
+
+import system.SchemaMigrator;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Seeded SQLite files for the benchmarks. Each size is generated once into
+ * java.io.tmpdir and every trial works on its own copy of it. The file name
+ * carries the schema version, so a new migration seeds a fresh template.
+ */
+final class BenchmarkDatabase {
+    static final int ROOMS = 500;
+    static final int CUSTOMERS = 1000;
+    static final int FIRST_ROOM = 100;
+    static final LocalDate FIRST_STAY = LocalDate.of(2000, 1, 1);
+    static final int STAY_SPACING_DAYS = 3;
+    static final int STAY_NIGHTS = 2;
+    private static final int BATCH_SIZE = 10_000;
+    private static final String[] STATUSES = {"PENDING", "CONFIRMED", "COMPLETED"};
+
+    private BenchmarkDatabase() {
+    }
+
+    static Path copyOf(int bookings) throws Exception {
+        Path template = Paths.get(System.getProperty("java.io.tmpdir"), "hotel-bench-v" + SchemaMigrator.latestVersion() + "-" + bookings + ".db");
+        if (!Files.exists(template)) {
+            Path partial = Files.createTempFile("hotel-bench-seed-", ".db");
+            seed(partial, bookings);
+            Files.move(partial, template, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path copy = Files.createTempFile("hotel-bench-", ".db");
+        Files.copy(template, copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    static String url(Path file) {
+        return "jdbc:sqlite:" + file.toAbsolutePath();
+    }
+
+    static void delete(Path file) throws Exception {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Paths.get(file + "-wal"));
+        Files.deleteIfExists(Paths.get(file + "-shm"));
+    }
+
+    // Rooms are staggered by a day so stays do not all start on the same dates.
+    static LocalDate stayStart(int roomIndex, int stay) {
+        return FIRST_STAY.plusDays((long) stay * STAY_SPACING_DAYS + roomIndex % STAY_SPACING_DAYS);
+    }
+
+    static int staysPerRoom(int bookings) {
+        return (bookings + ROOMS - 1) / ROOMS;
+    }
+
+    private static void seed(Path file, int bookings) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(url(file))) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("PRAGMA journal_mode=OFF");
+                stmt.execute("PRAGMA synchronous=OFF");
+            }
+            new SchemaMigrator().migrate(connection);
+            connection.setAutoCommit(false);
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "INSERT INTO users (id, name, username, password, email, role, registration_date) VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+                addUser(stmt, 1, "bench_admin", "ADMIN");
+                addUser(stmt, 2, "bench_clerk", "RECEPTIONIST");
+                for (int i = 0; i < CUSTOMERS; i++) {
+                    addUser(stmt, 10 + i, "guest_" + i, "CUSTOMER");
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "INSERT INTO rooms (room_number, type_name, price_per_night, is_available, location, amenities) VALUES (?, ?, ?, 1, 'Main Building', 'WiFi, TV')")) {
+                for (int i = 0; i < ROOMS; i++) {
+                    stmt.setInt(1, FIRST_ROOM + i);
+                    stmt.setString(2, i % 3 == 0 ? "double" : "single");
+                    stmt.setDouble(3, 100 + (i % 5) * 50);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "INSERT INTO bookings (customer_id, room_number, check_in_date, check_out_date, check_in_day, check_out_day, status, total_cost, booking_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (int i = 0; i < bookings; i++) {
+                    int roomIndex = i % ROOMS;
+                    LocalDate checkIn = stayStart(roomIndex, i / ROOMS);
+                    stmt.setInt(1, 10 + i % CUSTOMERS);
+                    stmt.setInt(2, FIRST_ROOM + roomIndex);
+                    stmt.setString(3, checkIn.toString());
+                    stmt.setString(4, checkIn.plusDays(STAY_NIGHTS).toString());
+                    stmt.setLong(5, checkIn.toEpochDay());
+                    stmt.setLong(6, checkIn.plusDays(STAY_NIGHTS).toEpochDay());
+                    stmt.setString(7, STATUSES[i % STATUSES.length]);
+                    stmt.setDouble(8, 200.0);
+                    stmt.setString(9, checkIn.minusDays(30).toString());
+                    stmt.addBatch();
+                    if ((i + 1) % BATCH_SIZE == 0) {
+                        stmt.executeBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            connection.commit();
+        }
+    }
+
+    private static void addUser(PreparedStatement stmt, int id, String username, String role) throws SQLException {
+        stmt.setInt(1, id);
+        stmt.setString(2, username);
+        stmt.setString(3, username);
+        stmt.setString(4, username + "_pw");
+        stmt.setString(5, username + "@hotel.test");
+        stmt.setString(6, role);
+        stmt.setString(7, "2020-01-01");
+        stmt.addBatch();
+    }
+}
@@ -0,0 +1,124 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import system.BookingEngine;
+import system.DatabaseHandler;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 64 bookers competing for a handful of rooms through several handlers on the
+ * same database file, as separate desks would. After every iteration the
+ * bookings table is checked for overlapping active stays and the run fails if
+ * any room was double booked.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+@Threads(64)
+public class BookingContentionBenchmark {
+    private static final int HANDLERS = 4;
+    private static final int ROOMS = 8;
+    private static final int WINDOW_DAYS = 60;
+    private static final LocalDate WINDOW_START = LocalDate.of(2100, 1, 1);
+    private static final String DOUBLE_BOOKINGS = """
+            SELECT COUNT(*) FROM bookings a
+            JOIN bookings b ON b.room_number = a.room_number AND b.booking_id > a.booking_id
+            WHERE a.check_in_day >= ? AND b.check_in_day >= ?
+            AND a.status IN ('PENDING', 'CONFIRMED') AND b.status IN ('PENDING', 'CONFIRMED')
+            AND a.check_in_day <= b.check_out_day AND a.check_out_day >= b.check_in_day
+            """;
+
+    private Path dbFile;
+    private DatabaseHandler[] handlers;
+    private final AtomicLong rejected = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws Exception {
+        dbFile = BenchmarkDatabase.copyOf(1000);
+        handlers = new DatabaseHandler[HANDLERS];
+        for (int i = 0; i < HANDLERS; i++) {
+            handlers[i] = new DatabaseHandler(BenchmarkDatabase.url(dbFile));
+            handlers[i].connect();
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void checkNoDoubleBookings() throws SQLException {
+        DatabaseHandler dbHandler = handlers[0];
+        try (PreparedStatement stmt = dbHandler.prepareStatement(DOUBLE_BOOKINGS)) {
+            stmt.setLong(1, WINDOW_START.toEpochDay());
+            stmt.setLong(2, WINDOW_START.toEpochDay());
+            try (ResultSet rs = stmt.executeQuery()) {
+                int overlaps = rs.next() ? rs.getInt(1) : 0;
+                if (overlaps > 0) {
+                    throw new IllegalStateException(overlaps + " double bookings after contention run");
+                }
+            }
+        }
+        try (PreparedStatement stmt = dbHandler.prepareStatement("DELETE FROM bookings WHERE check_in_day >= ?")) {
+            stmt.setLong(1, WINDOW_START.toEpochDay());
+            stmt.executeUpdate();
+        }
+        System.out.println("Rejected as already booked this iteration: " + rejected.getAndSet(0));
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws Exception {
+        for (DatabaseHandler dbHandler : handlers) {
+            dbHandler.closeConnection();
+        }
+        BenchmarkDatabase.delete(dbFile);
+    }
+
+    @State(Scope.Thread)
+    public static class Booker {
+        private BookingEngine engine;
+        private SplittableRandom random;
+        private int customerId;
+
+        @Setup(Level.Trial)
+        public void assignDesk(BookingContentionBenchmark benchmark, ThreadParams thread) {
+            engine = new BookingEngine(benchmark.handlers[thread.getThreadIndex() % HANDLERS]);
+            random = new SplittableRandom(thread.getThreadIndex());
+            customerId = 10 + thread.getThreadIndex() % BenchmarkDatabase.CUSTOMERS;
+        }
+    }
+
+    @Benchmark
+    public boolean book(Booker booker) throws SQLException {
+        int roomNumber = BenchmarkDatabase.FIRST_ROOM + booker.random.nextInt(ROOMS);
+        LocalDate checkIn = WINDOW_START.plusDays(booker.random.nextInt(WINDOW_DAYS));
+        try {
+            booker.engine.book(booker.customerId, roomNumber, checkIn, checkIn.plusDays(2),
+                    200.0, LocalDate.now());
+            return true;
+        } catch (IllegalStateException e) {
+            rejected.incrementAndGet();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package benchmarks;
+
+import core.Admin;
+import core.Booking;
+import core.Room;
+import core.RoomType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import payment.CardPayment;
+import system.DatabaseHandler;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The booking hot paths the dashboards hit, each against a fresh copy of a
+ * database seeded with the given number of bookings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class BookingHotPathsBenchmark {
+    private static final int PROBES = 1024;
+    private static final String OVERLAP_QUERY = """
+            SELECT 1 FROM bookings
+            WHERE room_number = ? AND status IN ('PENDING', 'CONFIRMED')
+            AND check_in_day <= ? AND check_out_day >= ?
+            LIMIT 1
+            """;
+    private static final String LOGIN_QUERY = "SELECT id, name, email, password, role FROM users WHERE username = ?";
+
+    @Param({"1000", "100000", "1000000"})
+    public int bookings;
+
+    private Path dbFile;
+    private DatabaseHandler dbHandler;
+    private Room[] rooms;
+    private Date[] checkIns;
+    private Date[] checkOuts;
+    private String[] usernames;
+    private int[] pendingBookings;
+    private double[] pendingTotals;
+    private int insertDay;
+    private int probe;
+    private Admin admin;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws Exception {
+        dbFile = BenchmarkDatabase.copyOf(bookings);
+        dbHandler = new DatabaseHandler(BenchmarkDatabase.url(dbFile));
+        dbHandler.connect();
+
+        RoomType single = new RoomType("single", "Single room", 100, 1, false);
+        int stays = BenchmarkDatabase.staysPerRoom(bookings);
+        rooms = new Room[PROBES];
+        checkIns = new Date[PROBES];
+        checkOuts = new Date[PROBES];
+        usernames = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            int roomIndex = (i * 7919) % BenchmarkDatabase.ROOMS;
+            rooms[i] = Room.load(BenchmarkDatabase.FIRST_ROOM + roomIndex, single, 100, true, "Main Building", "WiFi, TV", dbHandler);
+            LocalDate start = BenchmarkDatabase.stayStart(roomIndex, (i * 31) % (stays + 1)).plusDays(i % BenchmarkDatabase.STAY_SPACING_DAYS);
+            checkIns[i] = toDate(start);
+            checkOuts[i] = toDate(start.plusDays(1));
+            usernames[i] = "guest_" + (i * 13) % BenchmarkDatabase.CUSTOMERS;
+        }
+
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(
+                "SELECT booking_id, total_cost FROM bookings WHERE status = 'PENDING' ORDER BY booking_id LIMIT " + PROBES);
+             ResultSet rs = stmt.executeQuery()) {
+            int[] ids = new int[PROBES];
+            double[] totals = new double[PROBES];
+            int count = 0;
+            while (rs.next()) {
+                ids[count] = rs.getInt(1);
+                totals[count++] = rs.getDouble(2);
+            }
+            pendingBookings = Arrays.copyOf(ids, count);
+            pendingTotals = Arrays.copyOf(totals, count);
+        } finally {
+            dbHandler.releaseReadConnection();
+        }
+
+        admin = new Admin(1, "bench_admin", "bench_admin", "bench_admin_pw", "bench_admin@hotel.test",
+                1, "Operations", true, dbHandler);
+        insertDay = (int) BenchmarkDatabase.stayStart(BenchmarkDatabase.STAY_SPACING_DAYS - 1, stays + 1).toEpochDay();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws Exception {
+        dbHandler.closeConnection();
+        BenchmarkDatabase.delete(dbFile);
+    }
+
+    @Benchmark
+    public boolean availabilityCheck() throws SQLException {
+        int i = nextProbe();
+        return rooms[i].isAvailableForDates(checkIns[i], checkOuts[i]);
+    }
+
+    // The overlap query BookingEngine runs against the database, for comparison with the in-memory index.
+    @Benchmark
+    public boolean availabilityOverlapQuery() throws SQLException {
+        int i = nextProbe();
+        long in = LocalDate.ofInstant(checkIns[i].toInstant(), ZoneId.systemDefault()).toEpochDay();
+        long out = LocalDate.ofInstant(checkOuts[i].toInstant(), ZoneId.systemDefault()).toEpochDay();
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(OVERLAP_QUERY)) {
+            stmt.setInt(1, rooms[i].getRoomNumber());
+            stmt.setLong(2, out);
+            stmt.setLong(3, in);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return !rs.next();
+            }
+        }
+    }
+
+    @Benchmark
+    public int bookingInsert() throws SQLException {
+        int i = nextProbe();
+        LocalDate checkIn = LocalDate.ofEpochDay(insertDay++);
+        Booking booking = new Booking(10 + i % BenchmarkDatabase.CUSTOMERS, rooms[i].getRoomNumber(),
+                checkIn, checkIn.plusDays(1), 100.0, dbHandler);
+        return booking.getBookingId();
+    }
+
+    @Benchmark
+    public boolean loginLookup() throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(LOGIN_QUERY)) {
+            stmt.setString(1, usernames[nextProbe()]);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && rs.getString("password") != null;
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean cardPayment(PendingBooking pending) {
+        CardPayment payment = new CardPayment("4111111111111111", "Bench Guest", "12/30", "123", dbHandler, pending.bookingId);
+        return payment.processPayment(pending.paymentKey, pending.totalCost);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public int adminViewAllBookings() throws Exception {
+        List<Booking> all = admin.viewAllBookings();
+        return all.size();
+    }
+
+    private int nextProbe() {
+        return probe++ & (PROBES - 1);
+    }
+
+    // A payment confirms its booking, so each invocation gets one put back to PENDING first,
+    // and a new key so the payment is settled again rather than replayed.
+    @State(Scope.Thread)
+    public static class PendingBooking {
+        private int next;
+        int bookingId;
+        double totalCost;
+        String paymentKey;
+
+        @Setup(Level.Invocation)
+        public void reopen(BookingHotPathsBenchmark benchmark) throws SQLException {
+            int index = next++ % benchmark.pendingBookings.length;
+            bookingId = benchmark.pendingBookings[index];
+            totalCost = benchmark.pendingTotals[index];
+            paymentKey = UUID.randomUUID().toString();
+            try (PreparedStatement stmt = benchmark.dbHandler.prepareStatement(
+                    "UPDATE bookings SET status = 'PENDING' WHERE booking_id = ?")) {
+                stmt.setInt(1, bookingId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private static Date toDate(LocalDate date) {
+        return Date.from(date.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+}
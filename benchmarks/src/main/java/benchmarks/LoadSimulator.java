@@ -0,0 +1,533 @@
+package benchmarks;
+
+import core.Booking;
+import core.BookingStatus;
+import core.Customer;
+import core.Receptionist;
+import core.Room;
+import core.User;
+import payment.CardPayment;
+import payment.CashPayment;
+import system.BookingEngine;
+import system.DatabaseHandler;
+import system.LatencyHistogram;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Headless load test of the booking, payment and front-desk flows, driven
+ * through the same calls the windows make. Guests and clerks arrive at a
+ * Poisson rate and each arrival runs one operation from the mix, so a slow
+ * database shows up as queueing rather than as fewer requests. Several
+ * handlers share the database file, as separate desks would, which is what
+ * produces SQLITE_BUSY. Latency is measured from the scheduled arrival, so
+ * it includes the wait for a free guest or clerk. At the end the database is
+ * checked for double bookings, duplicate or unledgered payments and lost
+ * writes, and the run exits with status 1 if any were found.
+ *
+ * <pre>
+ * java -cp benchmarks.jar benchmarks.LoadSimulator --guests=50 --clerks=4 --rate=100 --duration=30
+ * </pre>
+ * Options may also be given as system properties, e.g. -Dsim.rate=100.
+ */
+public class LoadSimulator {
+    private static final String DEFAULT_MIX = "book=40,form=15,card=15,cash=10,checkin=10,checkout=10";
+    private static final int MAX_ERROR_SAMPLES = 5;
+    private static final String DOUBLE_BOOKINGS = """
+            SELECT COUNT(*) FROM bookings a
+            JOIN bookings b ON b.room_number = a.room_number AND b.booking_id > a.booking_id
+            WHERE b.booking_id > ?
+            AND a.status IN ('PENDING', 'CONFIRMED') AND b.status IN ('PENDING', 'CONFIRMED')
+            AND a.check_in_day <= b.check_out_day AND a.check_out_day >= b.check_in_day
+            """;
+    private static final String DUPLICATE_PAYMENTS = """
+            SELECT COUNT(*) FROM (SELECT booking_id FROM payments WHERE booking_id > ?
+            GROUP BY booking_id HAVING COUNT(*) > 1)
+            """;
+    private static final String PAYMENTS_ON_UNCONFIRMED = """
+            SELECT COUNT(*) FROM payments p JOIN bookings b ON b.booking_id = p.booking_id
+            WHERE p.booking_id > ? AND b.status NOT IN ('CONFIRMED', 'COMPLETED')
+            """;
+    private static final String UNLEDGERED_PAYMENTS = """
+            SELECT COUNT(*) FROM payments p WHERE p.booking_id > ?
+            AND NOT EXISTS (SELECT 1 FROM payment_ledger l WHERE l.payment_id = p.payment_id)
+            """;
+    private static final String ROLLUP_DRIFT =
+            "SELECT (SELECT COALESCE(SUM(bookings), 0) FROM booking_daily_rollup) - (SELECT COUNT(*) FROM bookings)";
+
+    enum Operation {
+        BOOK("book", false), FORM("form", false), CARD("card", false), CASH("cash", false),
+        CHECK_IN("checkin", true), CHECK_OUT("checkout", true);
+
+        private final String key;
+        private final boolean clerk;
+
+        Operation(String key, boolean clerk) {
+            this.key = key;
+            this.clerk = clerk;
+        }
+    }
+
+    // Counts stderr lines by message, with numbers masked so the same failure on different rows groups together.
+    private static final class ErrorTally extends OutputStream {
+        private static final int TOP = 5;
+        private final Map<String, Long> counts = new HashMap<>();
+        private final StringBuilder line = new StringBuilder();
+        private long lines;
+
+        @Override
+        public synchronized void write(int b) {
+            if (b == '\n') {
+                if (!line.isEmpty()) {
+                    counts.merge(line.toString().replaceAll("\\d+", "#").trim(), 1L, Long::sum);
+                    lines++;
+                }
+                line.setLength(0);
+            } else if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+
+        private synchronized void report() {
+            if (lines == 0) {
+                return;
+            }
+            System.out.println("stderr: " + lines + " lines, " + counts.size() + " distinct");
+            counts.entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                    .limit(TOP)
+                    .forEach(entry -> System.out.printf("  %6d  %s%n", entry.getValue(), entry.getKey()));
+        }
+    }
+
+    private static final class Outcome {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+    }
+
+    // The customers, clerk and rooms as seen through one handler.
+    private static final class Desk {
+        private final DatabaseHandler dbHandler;
+        private final List<Customer> customers = new ArrayList<>();
+        private final List<Room> rooms = new ArrayList<>();
+        private Receptionist clerk;
+
+        private Desk(DatabaseHandler dbHandler) {
+            this.dbHandler = dbHandler;
+        }
+    }
+
+    private final int guests;
+    private final int clerks;
+    private final double rate;
+    private final int durationSeconds;
+    private final int roomCount;
+    private final int windowDays;
+    private final Map<Operation, Integer> mix;
+    private final Map<Operation, Outcome> outcomes = new EnumMap<>(Operation.class);
+    private final ConcurrentLinkedQueue<Booking> pending = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Booking> paid = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Booking> checkedIn = new ConcurrentLinkedQueue<>();
+    private final AtomicLong busyErrors = new AtomicLong();
+    private final List<String> errorSamples = new ArrayList<>();
+    private final LocalDate firstNight = LocalDate.now().plusDays(1);
+    private Desk[] desks;
+
+    private LoadSimulator(Map<String, String> options) {
+        guests = Integer.parseInt(option(options, "guests", "50"));
+        clerks = Integer.parseInt(option(options, "clerks", "4"));
+        rate = Double.parseDouble(option(options, "rate", "100"));
+        durationSeconds = Integer.parseInt(option(options, "duration", "30"));
+        roomCount = Integer.parseInt(option(options, "rooms", "20"));
+        windowDays = Integer.parseInt(option(options, "windowDays", "60"));
+        mix = parseMix(option(options, "mix", DEFAULT_MIX));
+        for (Operation operation : Operation.values()) {
+            outcomes.put(operation, new Outcome());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseArgs(args);
+        Path dbFile = copyDatabase(option(options, "db", null), Integer.parseInt(option(options, "bookings", "10000")));
+        PrintStream stderr = System.err;
+        boolean verbose = Boolean.parseBoolean(option(options, "verbose", "false"));
+        ErrorTally tally = new ErrorTally();
+        LoadSimulator simulator = new LoadSimulator(options);
+        int violations;
+        try {
+            simulator.open(dbFile, Integer.parseInt(option(options, "handlers", "2")));
+            long firstNewBooking = maxBookingId(dbFile);
+            long rollupDrift = queryLong(dbFile, ROLLUP_DRIFT, -1);
+            if (!verbose) {
+                // Payment and booking failures are expected under contention; they are tallied and summarised.
+                System.setErr(new PrintStream(tally, true));
+            }
+            long elapsed;
+            try {
+                elapsed = simulator.run();
+            } finally {
+                System.setErr(stderr);
+            }
+            long busyRetries = simulator.close();
+            simulator.report(elapsed, busyRetries);
+            tally.report();
+            violations = simulator.checkInvariants(dbFile, firstNewBooking, rollupDrift);
+        } finally {
+            BenchmarkDatabase.delete(dbFile);
+        }
+        System.exit(violations == 0 ? 0 : 1);
+    }
+
+    private void open(Path dbFile, int handlers) throws SQLException {
+        desks = new Desk[handlers];
+        for (int i = 0; i < handlers; i++) {
+            DatabaseHandler dbHandler = new DatabaseHandler(BenchmarkDatabase.url(dbFile));
+            dbHandler.connect();
+            Desk desk = new Desk(dbHandler);
+            try (PreparedStatement stmt = dbHandler.prepareStatement(
+                    "SELECT * FROM users WHERE role IN ('CUSTOMER', 'RECEPTIONIST') ORDER BY id");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    User user = User.fromRow(rs, dbHandler);
+                    if (user instanceof Customer) {
+                        desk.customers.add((Customer) user);
+                    } else if (desk.clerk == null) {
+                        desk.clerk = (Receptionist) user;
+                    }
+                }
+            }
+            List<Room> rooms = dbHandler.getRoomCatalog().getAll();
+            desk.rooms.addAll(rooms.subList(0, Math.min(roomCount, rooms.size())));
+            if (desk.customers.isEmpty() || desk.clerk == null || desk.rooms.isEmpty()) {
+                throw new IllegalStateException("The database needs at least one customer, receptionist and room");
+            }
+            desks[i] = desk;
+        }
+    }
+
+    // Schedules arrivals until the duration is up, then waits for the ones in flight; returns the elapsed nanos.
+    private long run() throws Exception {
+        Semaphore guestSlots = new Semaphore(guests);
+        Semaphore clerkSlots = new Semaphore(clerks);
+        int mixTotal = mix.values().stream().mapToInt(Integer::intValue).sum();
+        SplittableRandom random = new SplittableRandom(42);
+        System.out.printf("Simulating %d guests and %d clerks, %.0f arrivals/s for %d s on %d rooms, %s threads%n",
+                guests, clerks, rate, durationSeconds, desks[0].rooms.size(),
+                virtualThreadsAvailable() ? "virtual" : "platform");
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(durationSeconds);
+        long next = start;
+        ExecutorService executor = newExecutor(guests + clerks);
+        try {
+            while (true) {
+                next += (long) (-Math.log(1 - random.nextDouble()) / rate * 1e9);
+                if (next >= end) {
+                    break;
+                }
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                Operation operation = pick(random.nextInt(mixTotal));
+                Desk desk = desks[random.nextInt(desks.length)];
+                long scheduled = next;
+                Semaphore slots = operation.clerk ? clerkSlots : guestSlots;
+                executor.execute(() -> arrive(operation, desk, slots, scheduled));
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.HOURS);
+        }
+        return System.nanoTime() - start;
+    }
+
+    private void arrive(Operation operation, Desk desk, Semaphore slots, long scheduled) {
+        slots.acquireUninterruptibly();
+        try {
+            perform(operation, desk, scheduled);
+        } finally {
+            slots.release();
+        }
+    }
+
+    private void perform(Operation operation, Desk desk, long scheduled) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Booking booking = null;
+        if (operation == Operation.CARD || operation == Operation.CASH) {
+            booking = pending.poll();
+        } else if (operation == Operation.CHECK_IN) {
+            // Paid guests arrive first; an unpaid booking is confirmed at the desk.
+            booking = paid.poll();
+            if (booking == null) {
+                booking = pending.poll();
+            }
+        } else if (operation == Operation.CHECK_OUT) {
+            booking = checkedIn.poll();
+        }
+        if (booking == null && operation != Operation.BOOK && operation != Operation.FORM) {
+            // Nothing to pay for or check in yet; the guest books instead.
+            operation = random.nextBoolean() ? Operation.BOOK : Operation.FORM;
+        }
+        Outcome outcome = outcomes.get(operation);
+        try {
+            boolean done = switch (operation) {
+                case BOOK -> book(desk, random);
+                case FORM -> bookThroughForm(desk, random);
+                case CARD -> pay(booking, new CardPayment("4111111111111111", "Load Test", "12/30", "123",
+                        desk.dbHandler, booking.getBookingId()).processPayment(paymentKey(booking), booking.getTotalCost()));
+                case CASH -> pay(booking, new CashPayment(desk.dbHandler, booking.getBookingId())
+                        .processPayment(paymentKey(booking), booking.getTotalCost()));
+                case CHECK_IN -> checkIn(desk, booking);
+                case CHECK_OUT -> checkOut(desk, booking);
+            };
+            (done ? outcome.completed : outcome.rejected).incrementAndGet();
+        } catch (IllegalStateException e) {
+            outcome.rejected.incrementAndGet();
+        } catch (Exception e) {
+            outcome.errors.incrementAndGet();
+            if (e instanceof SQLException && DatabaseHandler.isBusy((SQLException) e)) {
+                busyErrors.incrementAndGet();
+            }
+            synchronized (errorSamples) {
+                if (errorSamples.size() < MAX_ERROR_SAMPLES) {
+                    errorSamples.add(operation.key + ": " + e);
+                }
+            }
+        } finally {
+            outcome.latency.record(System.nanoTime() - scheduled);
+        }
+    }
+
+    // Customer.bookRoom, as the customer dashboard calls it.
+    private boolean book(Desk desk, ThreadLocalRandom random) throws Exception {
+        Customer customer = desk.customers.get(random.nextInt(desk.customers.size()));
+        Room room = desk.rooms.get(random.nextInt(desk.rooms.size()));
+        LocalDate checkIn = firstNight.plusDays(random.nextInt(windowDays));
+        LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(4));
+        pending.add(customer.bookRoom(room, toDate(checkIn), toDate(checkOut)));
+        return true;
+    }
+
+    // BookingEngine.book with the form's cost rule, as BookingForm commits a booking.
+    private boolean bookThroughForm(Desk desk, ThreadLocalRandom random) throws SQLException {
+        Customer customer = desk.customers.get(random.nextInt(desk.customers.size()));
+        Room room = desk.rooms.get(random.nextInt(desk.rooms.size()));
+        LocalDate checkIn = firstNight.plusDays(random.nextInt(windowDays));
+        LocalDate checkOut = checkIn.plusDays(1 + random.nextInt(4));
+        double totalCost = room.getPricePerNight() * (checkOut.toEpochDay() - checkIn.toEpochDay());
+        LocalDate today = LocalDate.now();
+        int bookingId = new BookingEngine(desk.dbHandler).book(customer.getId(), room.getRoomNumber(),
+                checkIn, checkOut, totalCost, today);
+        pending.add(new Booking(bookingId, customer, room, checkIn, checkOut, BookingStatus.PENDING,
+                totalCost, today, desk.dbHandler));
+        return true;
+    }
+
+    // One key per booking, as the dashboard keeps it, so a retried payment replays instead of charging twice.
+    private static String paymentKey(Booking booking) {
+        return "sim-" + booking.getBookingId();
+    }
+
+    private boolean pay(Booking booking, boolean settled) {
+        if (settled) {
+            paid.add(booking);
+        }
+        return settled;
+    }
+
+    private boolean checkIn(Desk desk, Booking booking) throws SQLException {
+        desk.clerk.checkInCustomer(booking);
+        checkedIn.add(booking);
+        return true;
+    }
+
+    private boolean checkOut(Desk desk, Booking booking) throws SQLException {
+        desk.clerk.checkOutCustomer(booking);
+        return true;
+    }
+
+    private Operation pick(int roll) {
+        for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) {
+                return entry.getKey();
+            }
+        }
+        return Operation.BOOK;
+    }
+
+    // Closes every handler, which drains the payment queue and ledger; returns the busy retries they saw.
+    private long close() {
+        long busyRetries = 0;
+        for (Desk desk : desks) {
+            busyRetries += desk.dbHandler.getBusyRetryCount();
+            desk.dbHandler.closeConnection();
+        }
+        return busyRetries;
+    }
+
+    private void report(long elapsedNanos, long busyRetries) {
+        double seconds = elapsedNanos / 1e9;
+        long total = 0;
+        long completed = 0;
+        System.out.printf("%n%-9s %8s %8s %8s %9s %9s %9s %9s%n",
+                "operation", "done", "rejected", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Outcome outcome = outcomes.get(operation);
+            LatencyHistogram latency = outcome.latency;
+            total += latency.getCount();
+            completed += outcome.completed.get();
+            System.out.printf("%-9s %8d %8d %8d %9.1f %9.1f %9.1f %9.1f%n", operation.key,
+                    outcome.completed.get(), outcome.rejected.get(), outcome.errors.get(),
+                    latency.percentileMicros(0.50) / 1e3, latency.percentileMicros(0.95) / 1e3,
+                    latency.percentileMicros(0.99) / 1e3, latency.getMaxMicros() / 1e3);
+        }
+        System.out.printf("%nThroughput: %.1f operations/s (%.1f completed/s) over %.1f s%n",
+                total / seconds, completed / seconds, seconds);
+        System.out.println("SQLITE_BUSY: " + busyRetries + " write transactions retried, "
+                + busyErrors.get() + " operations failed");
+        for (String sample : errorSamples) {
+            System.out.println("  error " + sample);
+        }
+    }
+
+    private int checkInvariants(Path dbFile, long firstNewBooking, long rollupDriftBefore) throws SQLException {
+        Map<String, Long> found = new LinkedHashMap<>();
+        try (Connection connection = DriverManager.getConnection(BenchmarkDatabase.url(dbFile))) {
+            found.put("double bookings", count(connection, DOUBLE_BOOKINGS, firstNewBooking));
+            found.put("bookings paid more than once", count(connection, DUPLICATE_PAYMENTS, firstNewBooking));
+            found.put("payments on unconfirmed bookings", count(connection, PAYMENTS_ON_UNCONFIRMED, firstNewBooking));
+            found.put("payments missing from the ledger", count(connection, UNLEDGERED_PAYMENTS, firstNewBooking));
+            long booked = outcomes.get(Operation.BOOK).completed.get() + outcomes.get(Operation.FORM).completed.get();
+            long stored = count(connection, "SELECT COUNT(*) FROM bookings WHERE booking_id > ?", firstNewBooking);
+            found.put("bookings lost or phantom", Math.abs(stored - booked));
+            try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(ROLLUP_DRIFT)) {
+                found.put("rollup rows out of step", rs.next() ? Math.abs(rs.getLong(1) - rollupDriftBefore) : 0);
+            }
+        }
+        int violations = 0;
+        System.out.println("\nInvariants:");
+        for (Map.Entry<String, Long> entry : found.entrySet()) {
+            System.out.printf("  %-34s %s%n", entry.getKey(), entry.getValue() == 0 ? "ok" : entry.getValue() + " VIOLATIONS");
+            violations += entry.getValue() == 0 ? 0 : 1;
+        }
+        return violations;
+    }
+
+    private static long count(Connection connection, String sql, long firstNewBooking) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, firstNewBooking);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    private static long maxBookingId(Path dbFile) throws SQLException {
+        return queryLong(dbFile, "SELECT COALESCE(MAX(booking_id), 0) FROM bookings", 0);
+    }
+
+    private static long queryLong(Path dbFile, String sql, long otherwise) throws SQLException {
+        try (Connection connection = DriverManager.getConnection(BenchmarkDatabase.url(dbFile));
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : otherwise;
+        }
+    }
+
+    // A copy of the given database, or of a freshly seeded one; the original is never touched.
+    private static Path copyDatabase(String source, int bookings) throws Exception {
+        if (source == null) {
+            return BenchmarkDatabase.copyOf(bookings);
+        }
+        Path copy = Files.createTempFile("hotel-sim-", ".db");
+        Files.copy(Paths.get(source), copy, StandardCopyOption.REPLACE_EXISTING);
+        return copy;
+    }
+
+    // Virtual threads when the JVM has them (21+), otherwise one platform thread per guest and clerk.
+    private static ExecutorService newExecutor(int users) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(users);
+        }
+    }
+
+    private static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static Date toDate(LocalDate day) {
+        return Date.from(day.atStartOfDay(ZoneId.systemDefault()).toInstant());
+    }
+
+    private static Map<Operation, Integer> parseMix(String spec) {
+        Map<Operation, Integer> parsed = new EnumMap<>(Operation.class);
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            Operation match = null;
+            for (Operation operation : Operation.values()) {
+                if (operation.key.equals(pair[0].trim())) {
+                    match = operation;
+                }
+            }
+            if (match == null || pair.length != 2) {
+                throw new IllegalArgumentException("Unknown mix entry '" + part + "', expected e.g. " + DEFAULT_MIX);
+            }
+            parsed.put(match, Integer.parseInt(pair[1].trim()));
+        }
+        return parsed;
+    }
+
+    private static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+        }
+        return options;
+    }
+
+    private static String option(Map<String, String> options, String name, String otherwise) {
+        return options.getOrDefault(name, System.getProperty("sim." + name, otherwise));
+    }
+}
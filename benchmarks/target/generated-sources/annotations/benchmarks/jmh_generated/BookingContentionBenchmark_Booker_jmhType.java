@@ -0,0 +1,4 @@
+package benchmarks.jmh_generated;
+public class BookingContentionBenchmark_Booker_jmhType extends BookingContentionBenchmark_Booker_jmhType_B3 {
+}
+
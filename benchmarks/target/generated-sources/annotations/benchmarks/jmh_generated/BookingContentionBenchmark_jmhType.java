@@ -0,0 +1,4 @@
+package benchmarks.jmh_generated;
+public class BookingContentionBenchmark_jmhType extends BookingContentionBenchmark_jmhType_B3 {
+}
+
@@ -0,0 +1,4 @@
+package benchmarks.jmh_generated;
+public class BookingHotPathsBenchmark_PendingBooking_jmhType extends BookingHotPathsBenchmark_PendingBooking_jmhType_B3 {
+}
+
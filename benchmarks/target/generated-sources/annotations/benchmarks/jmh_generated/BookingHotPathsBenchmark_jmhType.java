@@ -0,0 +1,4 @@
+package benchmarks.jmh_generated;
+public class BookingHotPathsBenchmark_jmhType extends BookingHotPathsBenchmark_jmhType_B3 {
+}
+
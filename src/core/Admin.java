@@ -2,11 +2,16 @@ package core;
 
 import core.*;
 import system.DatabaseHandler;
+import system.ReportRollups;
+import system.RoomImporter;
+import java.io.IOException;
+import java.io.Reader;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -25,7 +30,6 @@ public class Admin extends User {
         this.department = department;
         this.isSuperAdmin = isSuperAdmin;
         this.dbHandler = dbHandler;
-        saveToDatabase();
     }
 
     public int getAdminLevel() {
@@ -56,7 +60,7 @@ public class Admin extends User {
     }
 
     public void addRoom(Room room) throws SQLException {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "INSERT INTO rooms (room_number, type_name, price_per_night, is_available, location, amenities) " +
                         "VALUES (?, ?, ?, ?, ?, ?)")) {
             stmt.setInt(1, room.getRoomNumber());
@@ -67,10 +71,11 @@ public class Admin extends User {
             stmt.setString(6, room.getAmenities());
             stmt.executeUpdate();
         }
+        dbHandler.roomSaved(room);
     }
 
     public void updateRoom(Room room) throws SQLException {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "UPDATE rooms SET type_name=?, price_per_night=?, is_available=?, location=?, amenities=? WHERE room_number=?")) {
             stmt.setString(1, room.getRoomType().getTypeName());
             stmt.setDouble(2, room.getPricePerNight());
@@ -80,18 +85,25 @@ public class Admin extends User {
             stmt.setInt(6, room.getRoomNumber());
             stmt.executeUpdate();
         }
+        dbHandler.roomSaved(room);
     }
 
     public void deleteRoom(int roomNumber) throws SQLException {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("DELETE FROM rooms WHERE room_number = ?")) {
+        try (PreparedStatement stmt = dbHandler.prepareStatement("DELETE FROM rooms WHERE room_number = ?")) {
             stmt.setInt(1, roomNumber);
             stmt.executeUpdate();
         }
+        dbHandler.roomDeleted(roomNumber);
+    }
+
+    public RoomImporter.Result importRooms(Reader input, RoomImporter.Format format, RoomImporter.Listener listener)
+            throws IOException, SQLException {
+        return new RoomImporter(dbHandler).importRooms(input, format, listener);
     }
 
     public List<Customer> viewAllCustomers() throws SQLException {
         List<Customer> customers = new ArrayList<>();
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT * FROM users WHERE role = 'CUSTOMER'")) {
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement("SELECT * FROM users WHERE role = 'CUSTOMER'")) {
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
                     int id = rs.getInt("id");
@@ -113,26 +125,15 @@ public class Admin extends User {
     }
 
     public List<Booking> viewAllBookings() throws SQLException, ParseException {
-        List<Booking> bookings = new ArrayList<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT * FROM bookings")) {
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int bookingID = rs.getInt("booking_id");
-                    int customerID = rs.getInt("customer_id");
-                    int roomNumber = rs.getInt("room_number");
-                    Date checkInDate = sdf.parse(rs.getString("check_in_date"));
-                    Date checkOutDate = sdf.parse(rs.getString("check_out_date"));
-                    BookingStatus status = BookingStatus.valueOf(rs.getString("status"));
-                    double totalCost = rs.getDouble("total_cost");
-                    Date bookingDate = sdf.parse(rs.getString("booking_date"));
-                    Customer customer = fetchCustomer(customerID);
-                    Room room = fetchRoom(roomNumber);
-                    bookings.add(new Booking(bookingID, customer, room, checkInDate, checkOutDate, status, totalCost, bookingDate, dbHandler));
-                }
-            }
-        }
-        return bookings;
+        return Booking.loadAll(dbHandler);
+    }
+
+    public ReportRollups.Summary viewReportSummary(LocalDate from, LocalDate to) throws SQLException {
+        return new ReportRollups(dbHandler).summarize(from, to);
+    }
+
+    public void rebuildReportRollups() throws SQLException {
+        new ReportRollups(dbHandler).rebuild();
     }
 
     public void approveBooking(Booking booking) throws SQLException {
@@ -153,27 +154,26 @@ public class Admin extends User {
                 """, adminLevel, department, isSuperAdmin);
     }
 
-    private void saveToDatabase() {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+    // Writes the whole profile, creating the users row if needed.
+    public void save() throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "INSERT OR REPLACE INTO users (id, name, username, password, email, role, admin_level, department, is_super_admin) " +
                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
             stmt.setInt(1, getId());
             stmt.setString(2, getName());
             stmt.setString(3, getUserName());
-            stmt.setString(4, getPassword());
+            stmt.setString(4, storedPassword());
             stmt.setString(5, getEmail());
             stmt.setString(6, ROLE);
             stmt.setInt(7, adminLevel);
             stmt.setString(8, department);
             stmt.setInt(9, isSuperAdmin ? 1 : 0);
             stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Failed to save admin to database: " + e.getMessage());
         }
     }
 
     private void updateInDatabase() {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "UPDATE users SET name=?, email=?, admin_level=?, department=?, is_super_admin=? WHERE id=?")) {
             stmt.setString(1, getName());
             stmt.setString(2, getEmail());
@@ -186,35 +186,4 @@ public class Admin extends User {
             System.err.println("Failed to update admin in database: " + e.getMessage());
         }
     }
-
-    private Customer fetchCustomer(int customerId) throws SQLException {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT * FROM users WHERE id = ? AND role = 'CUSTOMER'")) {
-            stmt.setInt(1, customerId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Customer(customerId, rs.getString("name"), rs.getString("username"),
-                            rs.getString("password"), rs.getString("email"), rs.getString("national_id"),
-                            rs.getString("address"), rs.getString("phone_number"),
-                            new SimpleDateFormat("yyyy-MM-dd").parse(rs.getString("registration_date")), dbHandler);
-                }
-                throw new SQLException("Customer not found: " + customerId);
-            }
-        } catch (ParseException e) {
-            throw new SQLException("Error parsing customer data: " + e.getMessage());
-        }
-    }
-
-    private Room fetchRoom(int roomNumber) throws SQLException {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT * FROM rooms WHERE room_number = ?")) {
-            stmt.setInt(1, roomNumber);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    RoomType roomType = new RoomType (rs.getString("type_name"), "", rs.getDouble("price_per_night"), 0, false);
-                    return new Room(rs.getInt("room_number"), roomType, rs.getDouble("price_per_night"),
-                            rs.getString("location"), rs.getString("amenities"), dbHandler);
-                }
-                throw new SQLException("Room not found: " + roomNumber);
-            }
-        }
-    }
 }
@@ -1,80 +1,175 @@
 package core;
 
 import system.DatabaseHandler;
+import system.RoomCatalog;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class Booking {
     private int bookingId;
     private int customerId;
     private int roomNumber;
-    private String checkInDate;
-    private String checkOutDate;
+    private int checkInDay;
+    private int checkOutDay;
     private String status;
     private double totalCost;
     private String bookingDate;
+    private Customer customer;
+    private Room room;
     private DatabaseHandler dbHandler;
 
-    public Booking(int customerId, int roomNumber, String checkInDate, String checkOutDate, double totalCost, DatabaseHandler dbHandler) throws SQLException {
+    private static final String HYDRATE_QUERY = """
+            SELECT b.booking_id, b.customer_id, b.room_number, b.check_in_day, b.check_out_day,
+                   b.status, b.total_cost, b.booking_date,
+                   u.id AS user_id, u.name, u.username, u.password, u.email, u.national_id, u.address,
+                   u.phone_number, u.registration_date
+            FROM bookings b
+            LEFT JOIN users u ON u.id = b.customer_id AND u.role = 'CUSTOMER'
+            """;
+
+    public Booking(int customerId, int roomNumber, LocalDate checkIn, LocalDate checkOut, double totalCost, DatabaseHandler dbHandler) throws SQLException {
         this.customerId = customerId;
         this.roomNumber = roomNumber;
-        this.checkInDate = checkInDate;
-        this.checkOutDate = checkOutDate;
+        this.checkInDay = (int) checkIn.toEpochDay();
+        this.checkOutDay = (int) checkOut.toEpochDay();
         this.status = "PENDING";
         this.totalCost = totalCost;
-        this.bookingDate = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+        this.bookingDate = LocalDate.now().toString();
         this.dbHandler = dbHandler;
         saveToDatabase();
     }
 
-    public Booking(int bookingId, int customerId, int roomNumber, String checkInDate, String checkOutDate, String status, double totalCost, String bookingDate, DatabaseHandler dbHandler) {
+    public Booking(int bookingId, int customerId, int roomNumber, int checkInDay, int checkOutDay, String status, double totalCost, String bookingDate, DatabaseHandler dbHandler) {
         this.bookingId = bookingId;
         this.customerId = customerId;
         this.roomNumber = roomNumber;
-        this.checkInDate = checkInDate;
-        this.checkOutDate = checkOutDate;
+        this.checkInDay = checkInDay;
+        this.checkOutDay = checkOutDay;
         this.status = status;
         this.totalCost = totalCost;
         this.bookingDate = bookingDate;
         this.dbHandler = dbHandler;
     }
 
-    public Booking(int bookingID, Customer customer, Room room, Date checkInDate, Date checkOutDate, BookingStatus status, double totalCost, Date bookingDate, DatabaseHandler dbHandler) {
+    public Booking(int bookingID, Customer customer, Room room, LocalDate checkIn, LocalDate checkOut, BookingStatus status, double totalCost, LocalDate bookingDate, DatabaseHandler dbHandler) {
+        this.bookingId = bookingID;
+        this.customer = customer;
+        this.customerId = customer.getId();
+        this.room = room;
+        this.roomNumber = room.getRoomNumber();
+        this.checkInDay = (int) checkIn.toEpochDay();
+        this.checkOutDay = (int) checkOut.toEpochDay();
+        this.status = status.name();
+        this.totalCost = totalCost;
+        this.bookingDate = bookingDate.toString();
+        this.dbHandler = dbHandler;
+    }
 
+    // Loads every booking with its customer in a single query; rooms come from the catalog.
+    public static List<Booking> loadAll(DatabaseHandler dbHandler) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(HYDRATE_QUERY)) {
+            return hydrate(stmt, null, dbHandler);
+        }
+    }
+
+    public static List<Booking> loadForCustomer(Customer customer, DatabaseHandler dbHandler) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(HYDRATE_QUERY + " WHERE b.customer_id = ?")) {
+            stmt.setInt(1, customer.getId());
+            return hydrate(stmt, customer, dbHandler);
+        }
+    }
+
+    private static List<Booking> hydrate(PreparedStatement stmt, Customer knownCustomer, DatabaseHandler dbHandler) throws SQLException {
+        List<Booking> bookings = new ArrayList<>();
+        Map<Integer, Customer> customers = new HashMap<>();
+        RoomCatalog rooms = dbHandler.getRoomCatalog();
+        if (knownCustomer != null) {
+            customers.put(knownCustomer.getId(), knownCustomer);
+        }
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                int customerId = rs.getInt("customer_id");
+                int roomNumber = rs.getInt("room_number");
+                Customer customer = customers.get(customerId);
+                if (customer == null) {
+                    customer = readCustomer(rs, customerId, dbHandler);
+                    customers.put(customerId, customer);
+                }
+                Room room = rooms.get(roomNumber);
+                if (room == null) {
+                    throw new SQLException("Room not found: " + roomNumber);
+                }
+                Booking booking = new Booking(rs.getInt("booking_id"), customerId, roomNumber,
+                        rs.getInt("check_in_day"), rs.getInt("check_out_day"), rs.getString("status"),
+                        rs.getDouble("total_cost"), rs.getString("booking_date"), dbHandler);
+                booking.customer = customer;
+                booking.room = room;
+                bookings.add(booking);
+            }
+        }
+        return bookings;
+    }
+
+    private static Customer readCustomer(ResultSet rs, int customerId, DatabaseHandler dbHandler) throws SQLException {
+        rs.getInt("user_id");
+        if (rs.wasNull()) {
+            throw new SQLException("Customer not found: " + customerId);
+        }
+        String registrationDate = rs.getString("registration_date");
+        try {
+            return new Customer(customerId, rs.getString("name"), rs.getString("username"),
+                    rs.getString("password"), rs.getString("email"), rs.getString("national_id"),
+                    rs.getString("address"), rs.getString("phone_number"),
+                    registrationDate == null ? null : new SimpleDateFormat("yyyy-MM-dd").parse(registrationDate), dbHandler);
+        } catch (ParseException e) {
+            throw new SQLException("Error parsing customer data: " + e.getMessage());
+        }
     }
 
     private void saveToDatabase() throws SQLException {
-        PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
-                "INSERT INTO bookings (customer_id, room_number, check_in_date, check_out_date, status, total_cost, booking_date) VALUES (?, ?, ?, ?, ?, ?, ?)",
-                java.sql.Statement.RETURN_GENERATED_KEYS);
-        stmt.setInt(1, customerId);
-        stmt.setInt(2, roomNumber);
-        stmt.setString(3, checkInDate);
-        stmt.setString(4, checkOutDate);
-        stmt.setString(5, status);
-        stmt.setDouble(6, totalCost);
-        stmt.setString(7, bookingDate);
-        stmt.executeUpdate();
-        ResultSet generatedKeys = stmt.getGeneratedKeys();
-        if (generatedKeys.next()) {
-            this.bookingId = generatedKeys.getInt(1);
-            System.out.println("Generated booking ID: " + bookingId);
-        } else {
-            throw new SQLException("Failed to retrieve generated booking ID");
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
+                "INSERT INTO bookings (customer_id, room_number, check_in_date, check_out_date, check_in_day, check_out_day, status, total_cost, booking_date) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)",
+                java.sql.Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, customerId);
+            stmt.setInt(2, roomNumber);
+            stmt.setString(3, getCheckInDate().toString());
+            stmt.setString(4, getCheckOutDate().toString());
+            stmt.setInt(5, checkInDay);
+            stmt.setInt(6, checkOutDay);
+            stmt.setString(7, status);
+            stmt.setDouble(8, totalCost);
+            stmt.setString(9, bookingDate);
+            stmt.executeUpdate();
+            try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                if (generatedKeys.next()) {
+                    this.bookingId = generatedKeys.getInt(1);
+                    System.out.println("Generated booking ID: " + bookingId);
+                    dbHandler.bookingInserted(bookingId, roomNumber, checkInDay, checkOutDay, status);
+                } else {
+                    throw new SQLException("Failed to retrieve generated booking ID");
+                }
+            }
         }
     }
 
     public void updateStatus(String newStatus) throws SQLException {
         this.status = newStatus;
-        PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
-                "UPDATE bookings SET status = ? WHERE booking_id = ?");
-        stmt.setString(1, status);
-        stmt.setInt(2, bookingId);
-        stmt.executeUpdate();
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
+                "UPDATE bookings SET status = ? WHERE booking_id = ?")) {
+            stmt.setString(1, status);
+            stmt.setInt(2, bookingId);
+            stmt.executeUpdate();
+        }
+        dbHandler.bookingStatusChanged(bookingId, status);
     }
 
     public int getBookingId() {
@@ -89,12 +184,20 @@ public class Booking {
         return roomNumber;
     }
 
-    public String getCheckInDate() {
-        return checkInDate;
+    public LocalDate getCheckInDate() {
+        return LocalDate.ofEpochDay(checkInDay);
     }
 
-    public String getCheckOutDate() {
-        return checkOutDate;
+    public LocalDate getCheckOutDate() {
+        return LocalDate.ofEpochDay(checkOutDay);
+    }
+
+    public int getCheckInDay() {
+        return checkInDay;
+    }
+
+    public int getCheckOutDay() {
+        return checkOutDay;
     }
 
     public String getStatus() {
@@ -110,19 +213,56 @@ public class Booking {
     }
 
     public Object getBookingID() {
-        return null;
+        return bookingId;
     }
 
     public void cancelBooking() {
 
     }
 
-    public void setStatus(BookingStatus bookingStatus) {
+    public void setStatus(BookingStatus bookingStatus) throws SQLException {
+        updateStatus(bookingStatus.name());
+    }
+
+    // Moves the booking on only if it is still in the expected status, so two desks cannot both act on it.
+    public boolean transition(BookingStatus from, BookingStatus to) throws SQLException {
+        return transition(dbHandler, from, to);
+    }
+
+    // Runs on the given handler, so the change joins a transaction the caller already has open there.
+    boolean transition(DatabaseHandler dbHandler, BookingStatus from, BookingStatus to) throws SQLException {
+        boolean changed = dbHandler.inWriteTransaction(() -> {
+            try (PreparedStatement stmt = dbHandler.prepareStatement(
+                    "UPDATE bookings SET status = ? WHERE booking_id = ? AND status = ?")) {
+                stmt.setString(1, to.name());
+                stmt.setInt(2, bookingId);
+                stmt.setString(3, from.name());
+                if (stmt.executeUpdate() == 0) {
+                    return false;
+                }
+            }
+            dbHandler.bookingStatusChanged(bookingId, to.name());
+            return true;
+        });
+        if (changed) {
+            status = to.name();
+        }
+        return changed;
+    }
 
+    // Re-reads the status on the given handler, e.g. after a payment confirmed the booking elsewhere.
+    String refreshStatus(DatabaseHandler dbHandler) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement("SELECT status FROM bookings WHERE booking_id = ?")) {
+            stmt.setInt(1, bookingId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                status = rs.next() ? rs.getString(1) : null;
+            }
+        }
+        return status;
     }
 
     public Room getRoom() {
-        return null;
+        return room;
     }
 
     public String generateInvoice() {
@@ -133,8 +273,8 @@ public class Booking {
 
     }
 
-    public Class<Object> getCustomer() {
-        return null;
+    public Customer getCustomer() {
+        return customer;
     }
 
     public void setroomnumber(int roomNumber) {
@@ -1,13 +1,15 @@
 package core;
 
 import core.*;
+import system.BookingEngine;
 import system.DatabaseHandler;
+import system.GroupBookingService;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
 import java.util.List;
 
@@ -27,7 +29,6 @@ public class Customer extends User {
         this.phoneNumber = phoneNumber;
         this.registrationDate = registrationDate;
         this.dbHandler = dbHandler;
-        saveToDatabase();
     }
 
     public String getNationalID() {
@@ -67,19 +68,22 @@ public class Customer extends User {
     }
 
     public Booking bookRoom(Room room, Date checkInDate, Date checkOutDate) throws SQLException, ParseException {
-        if (room.isAvailableForDates(checkInDate, checkOutDate)) {
-            try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT MAX(booking_id) FROM bookings")) {
-                try (var rs = stmt.executeQuery()) {
-                    int newBookingID = rs.next() ? rs.getInt(1) + 1 : 1;
-                    Booking booking = new Booking(newBookingID, this, room, checkInDate, checkOutDate,
-                            BookingStatus.PENDING, 0.0, new Date(), dbHandler);
-                    room.markOccupied();
-                    return booking;
-                }
-            }
-        } else {
-            throw new IllegalStateException("Room is not available for the selected dates");
-        }
+        LocalDate checkIn = toLocalDate(checkInDate);
+        LocalDate checkOut = toLocalDate(checkOutDate);
+        double totalCost = room.getPricePerNight() * (checkOut.toEpochDay() - checkIn.toEpochDay());
+        LocalDate bookingDate = LocalDate.now();
+        int bookingId = new BookingEngine(dbHandler).book(getId(), room.getRoomNumber(),
+                checkIn, checkOut, totalCost, bookingDate);
+        return new Booking(bookingId, this, room, checkIn, checkOut, BookingStatus.PENDING, totalCost, bookingDate, dbHandler);
+    }
+
+    public GroupBookingService.GroupBooking bookGroup(String typeName, int count, Date checkInDate, Date checkOutDate) throws SQLException {
+        return new GroupBookingService(dbHandler).bookByType(getId(), typeName, count,
+                toLocalDate(checkInDate), toLocalDate(checkOutDate), LocalDate.now());
+    }
+
+    private static LocalDate toLocalDate(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
     }
 
     public void cancelBooking(Booking booking) throws SQLException {
@@ -87,24 +91,7 @@ public class Customer extends User {
     }
 
     public List<Booking> viewMyBookings() throws SQLException, ParseException {
-        List<Booking> bookings = new ArrayList<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT * FROM bookings WHERE customer_id = ?")) {
-            stmt.setInt(1, getId());
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int bookingID = rs.getInt("booking_id");
-                    Room room = fetchRoom(rs.getInt("room_number"));
-                    Date checkInDate = sdf.parse(rs.getString("check_in_date"));
-                    Date checkOutDate = sdf.parse(rs.getString("check_out_date"));
-                    BookingStatus status = BookingStatus.valueOf(rs.getString("status"));
-                    double totalCost = rs.getDouble("total_cost");
-                    Date bookingDate = sdf.parse(rs.getString("booking_date"));
-                    bookings.add(new Booking(bookingID, this, room, checkInDate, checkOutDate, status, totalCost, bookingDate, dbHandler));
-                }
-            }
-        }
-        return bookings;
+        return Booking.loadForCustomer(this, dbHandler);
     }
 
     public void updateContactInfo(String phone, String address) {
@@ -128,28 +115,27 @@ public class Customer extends User {
                 """, nationalID, address, phoneNumber, registrationDate);
     }
 
-    private void saveToDatabase() {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+    // Writes the whole profile, creating the users row if needed.
+    public void save() throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "INSERT OR REPLACE INTO users (id, name, username, password, email, role, national_id, address, phone_number, registration_date) " +
                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
             stmt.setInt(1, getId());
             stmt.setString(2, getName());
             stmt.setString(3, getUserName());
-            stmt.setString(4, getPassword());
+            stmt.setString(4, storedPassword());
             stmt.setString(5, getEmail());
             stmt.setString(6, ROLE);
             stmt.setString(7, nationalID);
             stmt.setString(8, address);
             stmt.setString(9, phoneNumber);
-            stmt.setString(10, new SimpleDateFormat("yyyy-MM-dd").format(registrationDate));
+            stmt.setString(10, registrationDate == null ? null : new SimpleDateFormat("yyyy-MM-dd").format(registrationDate));
             stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Failed to save customer to database: " + e.getMessage());
         }
     }
 
     private void updateInDatabase() {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "UPDATE users SET name=?, email=?, national_id=?, address=?, phone_number=?, registration_date=? WHERE id=?")) {
             stmt.setString(1, getName());
             stmt.setString(2, getEmail());
@@ -164,20 +150,6 @@ public class Customer extends User {
         }
     }
 
-    private Room fetchRoom(int roomNumber) throws SQLException {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT * FROM rooms WHERE room_number = ?")) {
-            stmt.setInt(1, roomNumber);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    RoomType roomType = new RoomType (rs.getString("type_name"), "", 0.0, 0, false);
-                    return new Room (rs.getInt("room_number"), roomType, rs.getDouble("price_per_night"),
-                            rs.getString("location"), rs.getString("amenities"), dbHandler);
-                }
-                throw new SQLException("Room not found: " + roomNumber);
-            }
-        }
-    }
-
     public int getCustomerId() {
         return 0;
     }
@@ -1,15 +1,17 @@
  package core;
 
 import core.*;
+import system.AvailabilityIndex;
 import system.DatabaseHandler;
+import system.OccupancyCalendar;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class Receptionist extends User {
     private static final String ROLE = "RECEPTIONIST";
@@ -25,7 +27,6 @@ public class Receptionist extends User {
         this.branch = branch;
         this.shift = shift;
         this.dbHandler = dbHandler;
-        saveToDatabase();
     }
 
     public int getEmployeeID() {
@@ -55,44 +56,39 @@ public class Receptionist extends User {
         updateInDatabase();
     }
 
+    // A paid booking is already CONFIRMED and checks in as it is; an unpaid one is confirmed at the desk.
     public void checkInCustomer(Booking booking) throws SQLException {
-        if (false) {
-            booking.setStatus(BookingStatus.CONFIRMED);
-        } else {
-            throw new IllegalStateException("Booking is not in PENDING status");
-        }
+        dbHandler.inWriteTransaction(() -> {
+            if (!booking.transition(dbHandler, BookingStatus.PENDING, BookingStatus.CONFIRMED)
+                    && !BookingStatus.CONFIRMED.name().equals(booking.refreshStatus(dbHandler))) {
+                throw new IllegalStateException("Booking is not in PENDING or CONFIRMED status");
+            }
+            return null;
+        });
     }
 
+    // Completes the stay and frees the room in one transaction; the room stays taken while another booking holds it.
     public void checkOutCustomer(Booking booking) throws SQLException {
-        if (false) {
-            booking.setStatus(BookingStatus.COMPLETED);
-            booking.getRoom().markAvailable();
-        } else {
-            throw new IllegalStateException("Booking is not in CONFIRMED status");
-        }
+        dbHandler.inWriteTransaction(() -> {
+            try (PreparedStatement stmt = dbHandler.prepareStatement(
+                    "UPDATE rooms SET is_available = 1 WHERE room_number = ? AND NOT EXISTS (" +
+                            "SELECT 1 FROM bookings WHERE room_number = ? AND booking_id <> ? AND status IN ('PENDING', 'CONFIRMED'))")) {
+                stmt.setInt(1, booking.getRoomNumber());
+                stmt.setInt(2, booking.getRoomNumber());
+                stmt.setInt(3, booking.getBookingId());
+                if (stmt.executeUpdate() > 0) {
+                    dbHandler.roomChanged(booking.getRoomNumber());
+                }
+            }
+            if (!booking.transition(dbHandler, BookingStatus.CONFIRMED, BookingStatus.COMPLETED)) {
+                throw new IllegalStateException("Booking is not in CONFIRMED status");
+            }
+            return null;
+        });
     }
 
     public List<Booking> viewAllBookings() throws SQLException, ParseException {
-        List<Booking> bookings = new ArrayList<>();
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT * FROM bookings")) {
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int bookingID = rs.getInt("booking_id");
-                    int customerID = rs.getInt("customer_id");
-                    int roomNumber = rs.getInt("room_number");
-                    Date checkInDate = sdf.parse(rs.getString("check_in_date"));
-                    Date checkOutDate = sdf.parse(rs.getString("check_out_date"));
-                    BookingStatus status = BookingStatus.valueOf(rs.getString("status"));
-                    double totalCost = rs.getDouble("total_cost");
-                    Date bookingDate = sdf.parse(rs.getString("booking_date"));
-                    Customer customer = fetchCustomer(customerID);
-                    Room room = fetchRoom(roomNumber);
-                    bookings.add(new Booking(bookingID, customer, room, checkInDate, checkOutDate, status, totalCost, bookingDate, dbHandler));
-                }
-            }
-        }
-        return bookings;
+        return Booking.loadAll(dbHandler);
     }
 
     @Override
@@ -105,27 +101,26 @@ public class Receptionist extends User {
                 """, employeeID, branch, shift);
     }
 
-    private void saveToDatabase() {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+    // Writes the whole profile, creating the users row if needed.
+    public void save() throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "INSERT OR REPLACE INTO users (id, name, username, password, email, role, employee_id, branch, shift) " +
                         "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)")) {
             stmt.setInt(1, getId());
             stmt.setString(2, getName());
             stmt.setString(3, getUserName());
-            stmt.setString(4, getPassword());
+            stmt.setString(4, storedPassword());
             stmt.setString(5, getEmail());
             stmt.setString(6, ROLE);
             stmt.setInt(7, employeeID);
             stmt.setString(8, branch);
             stmt.setString(9, shift);
             stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Failed to save receptionist to database: " + e.getMessage());
         }
     }
 
     private void updateInDatabase() {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "UPDATE users SET name=?, email=?, employee_id=?, branch=?, shift=? WHERE id=?")) {
             stmt.setString(1, getName());
             stmt.setString(2, getEmail());
@@ -139,38 +134,34 @@ public class Receptionist extends User {
         }
     }
 
-    private Customer fetchCustomer(int customerId) throws SQLException {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT * FROM users WHERE id = ? AND role = 'CUSTOMER'")) {
-            stmt.setInt(1, customerId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return new Customer(customerId, rs.getString("name"), rs.getString("username"),
-                            rs.getString("password"), rs.getString("email"), rs.getString("national_id"),
-                            rs.getString("address"), rs.getString("phone_number"),
-                            new SimpleDateFormat("yyyy-MM-dd").parse(rs.getString("registration_date")), dbHandler);
-                }
-                throw new SQLException("Customer not found: " + customerId);
-            }
-        } catch (ParseException e) {
-            throw new SQLException("Error parsing customer data: " + e.getMessage());
-        }
+    public List<Room> viewAvailableRooms() throws SQLException {
+        return dbHandler.getRoomCatalog().getAvailable();
     }
 
-    private Room fetchRoom(int roomNumber) throws SQLException {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement("SELECT * FROM rooms WHERE room_number = ?")) {
-            stmt.setInt(1, roomNumber);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    RoomType roomType = new RoomType(rs.getString("type_name"), "", rs.getDouble("price_per_night"), 0, false);
-                    return new Room(rs.getInt("room_number"), roomType, rs.getDouble("price_per_night"),
-                            rs.getString("location"), rs.getString("amenities"), dbHandler);
+    // Rooms BookingEngine would accept for the stay, from the occupancy calendar or, outside its window, the availability index.
+    public List<Room> viewRoomsFreeBetween(LocalDate checkIn, LocalDate checkOut) throws SQLException {
+        List<Room> rooms = dbHandler.getRoomCatalog().getAll();
+        OccupancyCalendar calendar = dbHandler.getOccupancyCalendar();
+        List<Room> free = new ArrayList<>();
+        if (calendar.covers(checkIn, checkOut)) {
+            List<Integer> roomNumbers = new ArrayList<>(rooms.size());
+            for (Room room : rooms) {
+                roomNumbers.add(room.getRoomNumber());
+            }
+            Set<Integer> freeNumbers = new HashSet<>(calendar.freeRooms(roomNumbers, checkIn, checkOut));
+            for (Room room : rooms) {
+                if (freeNumbers.contains(room.getRoomNumber())) {
+                    free.add(room);
+                }
+            }
+        } else {
+            AvailabilityIndex index = dbHandler.getAvailabilityIndex();
+            for (Room room : rooms) {
+                if (index.isAvailable(room.getRoomNumber(), checkIn.toEpochDay(), checkOut.toEpochDay())) {
+                    free.add(room);
                 }
-                throw new SQLException("Room not found: " + roomNumber);
             }
         }
-    }
-
-    public List<Room> viewAvailableRooms() {
-        return null;
+        return free;
     }
 }
@@ -3,9 +3,8 @@ package core;
 import core.RoomType;
 import system.DatabaseHandler;
 import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.time.ZoneId;
 import java.util.Date;
 
 public class Room {
@@ -18,14 +17,23 @@ public class Room {
     private DatabaseHandler dbHandler;
 
     public Room(int roomNumber, RoomType roomType, double pricePerNight, String location, String amenities, DatabaseHandler dbHandler) throws SQLException {
+        this(roomNumber, roomType, pricePerNight, true, location, amenities, dbHandler);
+        saveToDatabase();
+    }
+
+    private Room(int roomNumber, RoomType roomType, double pricePerNight, boolean isAvailable, String location, String amenities, DatabaseHandler dbHandler) {
         this.roomNumber = roomNumber;
         this.roomType = roomType;
         this.pricePerNight = pricePerNight;
-        this.isAvailable = true;
+        this.isAvailable = isAvailable;
         this.location = location;
         this.amenities = amenities;
         this.dbHandler = dbHandler;
-        saveToDatabase();
+    }
+
+    // Builds a room from an existing rooms row without writing it back.
+    public static Room load(int roomNumber, RoomType roomType, double pricePerNight, boolean isAvailable, String location, String amenities, DatabaseHandler dbHandler) {
+        return new Room(roomNumber, roomType, pricePerNight, isAvailable, location, amenities, dbHandler);
     }
 
     public int getRoomNumber() {
@@ -52,62 +60,43 @@ public class Room {
         return amenities;
     }
 
-    public void setRoomType(RoomType roomType) {
-        this.roomType = roomType;
-        updateInDatabase();
+    // Each setter writes the row first and only changes this room once the write succeeds.
+    public void setRoomType(RoomType roomType) throws SQLException {
+        updateInDatabase(roomType, pricePerNight, isAvailable, location, amenities);
     }
 
-    public void setPricePerNight(double pricePerNight) {
-        this.pricePerNight = pricePerNight;
-        updateInDatabase();
+    public void setPricePerNight(double pricePerNight) throws SQLException {
+        updateInDatabase(roomType, pricePerNight, isAvailable, location, amenities);
     }
 
-    public void setLocation(String location) {
-        this.location = location;
-        updateInDatabase();
+    public void setLocation(String location) throws SQLException {
+        updateInDatabase(roomType, pricePerNight, isAvailable, location, amenities);
     }
 
-    public void setAmenities(String amenities) {
-        this.amenities = amenities;
-        updateInDatabase();
+    public void setAmenities(String amenities) throws SQLException {
+        updateInDatabase(roomType, pricePerNight, isAvailable, location, amenities);
     }
 
     public void markOccupied() throws SQLException {
-        this.isAvailable = false;
-        updateInDatabase();
+        updateInDatabase(roomType, pricePerNight, false, location, amenities);
     }
 
     public void markAvailable() throws SQLException {
-        this.isAvailable = true;
-        updateInDatabase();
+        updateInDatabase(roomType, pricePerNight, true, location, amenities);
+    }
+
+    // A detached copy, so a room handed out from the catalog can be changed without touching the cached one.
+    public Room copy() {
+        RoomType type = new RoomType(roomType.getTypeName(), roomType.getDescription(), roomType.getBasePrice(),
+                roomType.getMaxOccupancy(), roomType.hasExtraBed());
+        return new Room(roomNumber, type, pricePerNight, isAvailable, location, amenities, dbHandler);
     }
 
     public boolean isAvailableForDates(Date checkInDate, Date checkOutDate) throws SQLException {
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        String checkIn = sdf.format(checkInDate);
-        String checkOut = sdf.format(checkOutDate);
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
-                """
-                SELECT 1 FROM bookings
-                WHERE room_number = ? AND status NOT IN ('CANCELLED', 'COMPLETED')
-                AND (
-                    (check_in_date <= ? AND check_out_date >= ?) OR
-                    (check_in_date <= ? AND check_out_date >= ?) OR
-                    (check_in_date >= ? AND check_out_date <= ?)
-                )
-                LIMIT 1
-                """)) {
-            stmt.setInt(1, roomNumber);
-            stmt.setString(2, checkOut);
-            stmt.setString(3, checkIn);
-            stmt.setString(4, checkOut);
-            stmt.setString(5, checkIn);
-            stmt.setString(6, checkIn);
-            stmt.setString(7, checkOut);
-            try (ResultSet rs = stmt.executeQuery()) {
-                return !rs.next();
-            }
-        }
+        ZoneId zone = ZoneId.systemDefault();
+        long checkIn = checkInDate.toInstant().atZone(zone).toLocalDate().toEpochDay();
+        long checkOut = checkOutDate.toInstant().atZone(zone).toLocalDate().toEpochDay();
+        return dbHandler.getAvailabilityIndex().isAvailable(roomNumber, checkIn, checkOut);
     }
 
     public String getRoomDetails() {
@@ -127,22 +116,41 @@ public class Room {
                 """, roomNumber, roomType.getTypeName(), pricePerNight, isAvailable, location, amenities);
     }
 
+    // An update rather than INSERT OR REPLACE when the room exists, so the row's update triggers fire.
     private void saveToDatabase() throws SQLException {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
-                "INSERT OR REPLACE INTO rooms (room_number, type_name, price_per_night, is_available, location, amenities) " +
-                        "VALUES (?, ?, ?, ?, ?, ?)")) {
-            stmt.setInt(1, roomNumber);
-            stmt.setString(2, roomType.getTypeName());
-            stmt.setDouble(3, pricePerNight);
-            stmt.setInt(4, isAvailable ? 1 : 0);
-            stmt.setString(5, location);
-            stmt.setString(6, amenities);
-            stmt.executeUpdate();
+        dbHandler.inWriteTransaction(() -> {
+            if (updateRow(roomType, pricePerNight, isAvailable, location, amenities) == 0) {
+                try (PreparedStatement stmt = dbHandler.prepareStatement(
+                        "INSERT INTO rooms (room_number, type_name, price_per_night, is_available, location, amenities) " +
+                                "VALUES (?, ?, ?, ?, ?, ?)")) {
+                    stmt.setInt(1, roomNumber);
+                    stmt.setString(2, roomType.getTypeName());
+                    stmt.setDouble(3, pricePerNight);
+                    stmt.setInt(4, isAvailable ? 1 : 0);
+                    stmt.setString(5, location);
+                    stmt.setString(6, amenities);
+                    stmt.executeUpdate();
+                }
+            }
+            dbHandler.roomSaved(this);
+            return null;
+        });
+    }
+
+    private void updateInDatabase(RoomType roomType, double pricePerNight, boolean isAvailable, String location, String amenities) throws SQLException {
+        if (updateRow(roomType, pricePerNight, isAvailable, location, amenities) == 0) {
+            throw new SQLException("Room not found: " + roomNumber);
         }
+        this.roomType = roomType;
+        this.pricePerNight = pricePerNight;
+        this.isAvailable = isAvailable;
+        this.location = location;
+        this.amenities = amenities;
+        dbHandler.roomSaved(this);
     }
 
-    private void updateInDatabase() {
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+    private int updateRow(RoomType roomType, double pricePerNight, boolean isAvailable, String location, String amenities) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "UPDATE rooms SET type_name=?, price_per_night=?, is_available=?, location=?, amenities=? WHERE room_number=?")) {
             stmt.setString(1, roomType.getTypeName());
             stmt.setDouble(2, pricePerNight);
@@ -150,9 +158,7 @@ public class Room {
             stmt.setString(4, location);
             stmt.setString(5, amenities);
             stmt.setInt(6, roomNumber);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            System.err.println("Failed to update room in database: " + e.getMessage());
+            return stmt.executeUpdate();
         }
     }
 }
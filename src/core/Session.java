@@ -0,0 +1,48 @@
+package core;
+
+import system.DatabaseHandler;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The signed-in user for the lifetime of a dashboard. The role object is
+ * built once from the login query and shared by every action, so no action
+ * has to rebuild it or write the user's row back.
+ */
+public class Session {
+    private final User user;
+    private final DatabaseHandler dbHandler;
+    private final LocalDateTime startedAt = LocalDateTime.now();
+
+    private Session(User user, DatabaseHandler dbHandler) {
+        this.user = user;
+        this.dbHandler = dbHandler;
+    }
+
+    // Completes with LoginFailedException if the credentials are wrong.
+    public static CompletableFuture<Session> signIn(DatabaseHandler dbHandler, String username, String password) {
+        return dbHandler.getCredentialService().authenticate(username, password)
+                .thenApply(user -> new Session(user, dbHandler));
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    // The user as the given role; IllegalStateException if they have another role.
+    public <T extends User> T getUser(Class<T> role) {
+        if (!role.isInstance(user)) {
+            throw new IllegalStateException(user.getUserName() + " is not signed in as " + role.getSimpleName());
+        }
+        return role.cast(user);
+    }
+
+    public DatabaseHandler getDbHandler() {
+        return dbHandler;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+}
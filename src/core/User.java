@@ -1,9 +1,13 @@
 package core;
 
+import system.CredentialService;
 import system.DatabaseHandler;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
 import java.util.regex.Pattern;
 
 public abstract class User {
@@ -27,6 +31,36 @@ public abstract class User {
         this.role = role;
     }
 
+    // Builds the role object for the current row of a SELECT * FROM users, without writing anything.
+    public static User fromRow(ResultSet rs, DatabaseHandler dbHandler) throws SQLException {
+        int id = rs.getInt("id");
+        String name = rs.getString("name");
+        String userName = rs.getString("username");
+        String password = rs.getString("password");
+        String email = rs.getString("email");
+        String role = rs.getString("role");
+        switch (role == null ? "" : role.toUpperCase()) {
+            case "ADMIN":
+                return new Admin(id, name, userName, password, email, rs.getInt("admin_level"),
+                        rs.getString("department"), rs.getInt("is_super_admin") == 1, dbHandler);
+            case "RECEPTIONIST":
+                return new Receptionist(id, name, userName, password, email, rs.getInt("employee_id"),
+                        rs.getString("branch"), rs.getString("shift"), dbHandler);
+            case "CUSTOMER":
+                String registrationDate = rs.getString("registration_date");
+                try {
+                    return new Customer(id, name, userName, password, email, rs.getString("national_id"),
+                            rs.getString("address"), rs.getString("phone_number"),
+                            registrationDate == null ? null : new SimpleDateFormat("yyyy-MM-dd").parse(registrationDate),
+                            dbHandler);
+                } catch (ParseException e) {
+                    throw new SQLException("Error parsing registration date: " + e.getMessage());
+                }
+            default:
+                throw new SQLException("Unknown role for user " + userName + ": " + role);
+        }
+    }
+
     public boolean isValidUsername(String username) {
         return username != null && username.length() >= 4 && Pattern.matches("^[A-Za-z0-9_]+$", username);
     }
@@ -47,6 +81,19 @@ public abstract class User {
         return password;
     }
 
+    // The password as it goes into the users table: a plaintext one is hashed once and kept hashed.
+    protected String storedPassword() {
+        if (password != null && !CredentialService.isHash(password)) {
+            password = CredentialService.hash(password);
+        }
+        return password;
+    }
+
+    // Records a hash that is already in the users table; nothing is written.
+    public void setStoredPassword(String hash) {
+        this.password = hash;
+    }
+
     public String getEmail() {
         return email;
     }
@@ -84,11 +131,11 @@ public abstract class User {
 
     private void updateInDatabase() {
         if (dbHandler == null) return;
-        try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
                 "UPDATE users SET name = ?, username = ?, password = ?, email = ? WHERE id = ?")) {
             stmt.setString(1, name);
             stmt.setString(2, userName);
-            stmt.setString(3, password);
+            stmt.setString(3, storedPassword());
             stmt.setString(4, email);
             stmt.setInt(5, id);
             stmt.executeUpdate();
@@ -2,26 +2,36 @@
 
 import core.*;
 import system.DatabaseHandler;
+import system.OccupancyCalendar;
+import system.ReportRollups;
+import system.RoomImporter;
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
+import java.io.File;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.sql.SQLException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.time.YearMonth;
 import java.util.List;
-import javax.imageio.ImageIO;
 
 public class AdminDashboard {
     private JFrame frame;
-    private User currentUser;
+    private Admin admin;
     private DatabaseHandler dbHandler;
-    private BufferedImage backgroundImage;
+    private UiTask usersTask;
+    private UiTask roomsTask;
+    private UiTask reportsTask;
+    private UiTask importTask;
+    private UiTask kpiTask;
+    private JLabel statusLabel;
 
-    public AdminDashboard(User currentUser, DatabaseHandler dbHandler) {
-        this.currentUser = currentUser;
-        this.dbHandler = dbHandler;
+    public AdminDashboard(Session session) {
+        this.admin = session.getUser(Admin.class);
+        this.dbHandler = session.getDbHandler();
 
         frame = new JFrame("Admin Dashboard");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -29,18 +39,11 @@ public class AdminDashboard {
         frame.setLocationRelativeTo(null);
         frame.setLayout(new BorderLayout());
 
-        try {
-            String imagePath = "/resources/photos/admin.png";
-            backgroundImage = loadScaledImage(imagePath, 800, 600);
-        } catch (IOException e) {
-            System.err.println("Error loading image: " + e.getMessage());
-            backgroundImage = null;
-        }
-
         JPanel backgroundPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
+                BufferedImage backgroundImage = ImageCache.get(ImageCache.ADMIN_BACKGROUND, 800, 600, this);
                 if (backgroundImage != null) {
                     g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
                 } else {
@@ -51,14 +54,14 @@ public class AdminDashboard {
         };
         backgroundPanel.setLayout(new BorderLayout());
 
-        JLabel welcomeLabel = new JLabel("Welcome, Admin " + currentUser.getUserName(), SwingConstants.CENTER);
+        JLabel welcomeLabel = new JLabel("Welcome, Admin " + admin.getUserName(), SwingConstants.CENTER);
         welcomeLabel.setFont(new Font("Arial", Font.BOLD, 24));
         welcomeLabel.setForeground(Color.WHITE);
         welcomeLabel.setOpaque(true);
         welcomeLabel.setBackground(new Color(0, 51, 102));
         welcomeLabel.setBorder(BorderFactory.createEmptyBorder(20, 0, 20, 0));
 
-        JPanel buttonPanel = new JPanel(new GridLayout(3, 1, 10, 10));
+        JPanel buttonPanel = new JPanel(new GridLayout(4, 1, 10, 10));
         buttonPanel.setBorder(BorderFactory.createEmptyBorder(20, 20, 20, 20));
         buttonPanel.setOpaque(false);
 
@@ -70,38 +73,38 @@ public class AdminDashboard {
         manageRoomsButton.setFont(new Font("Arial", Font.BOLD, 16));
         manageRoomsButton.addActionListener(e -> manageRooms());
 
+        JButton importRoomsButton = new JButton("Import Rooms");
+        importRoomsButton.setFont(new Font("Arial", Font.BOLD, 16));
+        importRoomsButton.addActionListener(e -> importRooms());
+
         JButton viewReportsButton = new JButton("View Reports");
         viewReportsButton.setFont(new Font("Arial", Font.BOLD, 16));
         viewReportsButton.addActionListener(e -> viewReports());
 
         buttonPanel.add(manageUsersButton);
         buttonPanel.add(manageRoomsButton);
+        buttonPanel.add(importRoomsButton);
         buttonPanel.add(viewReportsButton);
 
         backgroundPanel.add(welcomeLabel, BorderLayout.NORTH);
         backgroundPanel.add(buttonPanel, BorderLayout.CENTER);
+
+        statusLabel = new JLabel(" ", SwingConstants.CENTER);
+        statusLabel.setForeground(Color.WHITE);
+        statusLabel.setOpaque(true);
+        statusLabel.setBackground(new Color(0, 51, 102));
+        backgroundPanel.add(statusLabel, BorderLayout.SOUTH);
         frame.add(backgroundPanel, BorderLayout.CENTER);
-    }
 
-    private BufferedImage loadScaledImage(String path, int targetWidth, int targetHeight) throws IOException {
-        BufferedImage originalImage = ImageIO.read(getClass().getResource(path));
-        if (originalImage == null) {
-            throw new IOException("Image resource not found: " + path);
-        }
-        BufferedImage scaledImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = scaledImage.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-        g2d.dispose();
-        originalImage.flush();
-        return scaledImage;
+        usersTask = new UiTask(frame);
+        roomsTask = new UiTask(frame);
+        reportsTask = new UiTask(frame);
+        importTask = new UiTask(frame);
+        kpiTask = new UiTask(frame);
     }
 
     private void manageUsers() {
-        try {
-            Admin admin = new Admin(currentUser.getId(), currentUser.getName(), currentUser.getUserName(),
-                    currentUser.getPassword(), currentUser.getEmail(), 1, "Management", true, dbHandler);
-            List<Customer> customers = admin.viewAllCustomers();
+        usersTask.run(dbHandler, admin::viewAllCustomers, customers -> {
             String[] columns = {"ID", "Name", "Username", "Email"};
             Object[][] data = new Object[customers.size()][4];
             for (int i = 0; i < customers.size(); i++) {
@@ -113,9 +116,7 @@ public class AdminDashboard {
             }
             JTable customerTable = new JTable(data, columns);
             JOptionPane.showMessageDialog(frame, new JScrollPane(customerTable), "All Customers", JOptionPane.INFORMATION_MESSAGE);
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(frame, "Error loading users: " + ex.getMessage());
-        }
+        }, error -> JOptionPane.showMessageDialog(frame, "Error loading users: " + error.getMessage()));
     }
 
     private void manageRooms() {
@@ -132,72 +133,158 @@ public class AdminDashboard {
 
         int result = JOptionPane.showConfirmDialog(frame, panel, "Add Room", JOptionPane.OK_CANCEL_OPTION);
         if (result == JOptionPane.OK_OPTION) {
+            int roomNumber;
+            double price;
             try {
-                int roomNumber = Integer.parseInt(roomNumberField.getText().trim());
-                String typeName = typeNameField.getText().trim();
-                double price = Double.parseDouble(priceField.getText().trim());
+                roomNumber = Integer.parseInt(roomNumberField.getText().trim());
+                price = Double.parseDouble(priceField.getText().trim());
+            } catch (NumberFormatException ex) {
+                JOptionPane.showMessageDialog(frame, "Error adding room: " + ex.getMessage());
+                return;
+            }
+            String typeName = typeNameField.getText().trim();
+            roomsTask.runOnce(dbHandler, () -> {
                 RoomType roomType = new RoomType(typeName, "Standard", price, 2, false);
-                Room room = new Room(roomNumber, roomType, price, "Main Building", "WiFi, TV", dbHandler);
-                Admin admin = new Admin(currentUser.getId(), currentUser.getName(), currentUser.getUserName(),
-                        currentUser.getPassword(), currentUser.getEmail(), 1, "Management", true, dbHandler);
+                Room room = Room.load(roomNumber, roomType, price, true, "Main Building", "WiFi, TV", dbHandler);
                 admin.addRoom(room);
-                JOptionPane.showMessageDialog(frame, "Room added successfully!");
-            } catch (NumberFormatException | SQLException ex) {
-                JOptionPane.showMessageDialog(frame, "Error adding room: " + ex.getMessage());
+                return room;
+            }, room -> JOptionPane.showMessageDialog(frame, "Room added successfully!"),
+                    error -> JOptionPane.showMessageDialog(frame, "Error adding room: " + error.getMessage()));
+        }
+    }
+
+    private void importRooms() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Import Rooms (CSV or JSON)");
+        if (chooser.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        RoomImporter.Listener listener = new RoomImporter.Listener() {
+            @Override
+            public void progress(int rowsRead, int imported) {
+                SwingUtilities.invokeLater(() -> statusLabel.setText("Importing " + file.getName() + ": "
+                        + imported + " rooms added, " + rowsRead + " rows read"));
+            }
+
+            @Override
+            public void rowFailed(int row, String message) {
+                System.err.println("Room import row " + row + " skipped: " + message);
+            }
+        };
+        importTask.runOnce(dbHandler, () -> {
+            try (Reader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+                return admin.importRooms(reader, RoomImporter.Format.forFileName(file.getName()), listener);
             }
+        }, this::showImportResult, error -> {
+            statusLabel.setText(" ");
+            JOptionPane.showMessageDialog(frame, "Error importing rooms: " + error.getMessage());
+        });
+    }
+
+    private void showImportResult(RoomImporter.Result result) {
+        statusLabel.setText("Imported " + result.getImported() + " of " + result.getRowsRead() + " rooms");
+        String summary = result.getImported() + " rooms imported, " + result.getErrors().size() + " rows skipped.";
+        if (result.getErrors().isEmpty()) {
+            JOptionPane.showMessageDialog(frame, summary, "Import Rooms", JOptionPane.INFORMATION_MESSAGE);
+            return;
         }
+        JTextArea errors = new JTextArea(String.join("\n", result.getErrors()), 12, 50);
+        errors.setEditable(false);
+        JPanel panel = new JPanel(new BorderLayout(5, 5));
+        panel.add(new JLabel(summary), BorderLayout.NORTH);
+        panel.add(new JScrollPane(errors), BorderLayout.CENTER);
+        JOptionPane.showMessageDialog(frame, panel, "Import Rooms", JOptionPane.WARNING_MESSAGE);
     }
 
     private void viewReports() {
-        try {
-            Admin admin = new Admin(currentUser.getId(), currentUser.getName(), currentUser.getUserName(),
-                    currentUser.getPassword(), currentUser.getEmail(), 1, "Management", true, dbHandler);
-            List<Booking> bookings = admin.viewAllBookings();
-
-            String[] columns = {"Booking ID", "Customer", "Room", "Check-In", "Check-Out", "Status", "Total Cost"};
-            Object[][] data = new Object[bookings.size()][7];
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-
-            for (int i = 0; i < bookings.size(); i++) {
-                Booking b = bookings.get(i);
-                data[i][0] = b.getBookingID();
-                data[i][1] = b.getCustomerId();
-                data[i][2] = b.getRoomNumber();
-
-                Object checkIn = b.getCheckInDate();
-                Object checkOut = b.getCheckOutDate();
-
-                // ✅ نطبع نوع الكائنات عشان نعرف بالضبط المشكلة فين
-                System.out.println("checkIn type: " + (checkIn != null ? checkIn.getClass().getName() : "null"));
-                System.out.println("checkOut type: " + (checkOut != null ? checkOut.getClass().getName() : "null"));
-
-                // ✅ نحمي التنسيق من النوع الغلط
-                try {
-                    data[i][3] = (checkIn instanceof Date) ? sdf.format((Date) checkIn) : checkIn.toString();
-                } catch (Exception e) {
-                    data[i][3] = "Invalid Date";
-                }
+        reportsTask.run(dbHandler, () -> new ReportSnapshot(new BookingReportTableModel(dbHandler), occupancySummary()), this::showReport,
+                error -> JOptionPane.showMessageDialog(frame, "SQL Error loading reports: " + error.getMessage()));
+    }
 
-                try {
-                    data[i][4] = (checkOut instanceof Date) ? sdf.format((Date) checkOut) : checkOut.toString();
-                } catch (Exception e) {
-                    data[i][4] = "Invalid Date";
+    private void showReport(ReportSnapshot report) {
+        BookingReportTableModel model = report.model;
+        JTable bookingsTable = new JTable(model);
+        bookingsTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int column = bookingsTable.columnAtPoint(e.getPoint());
+                if (column >= 0) {
+                    model.sortBy(bookingsTable.convertColumnIndexToModel(column));
                 }
-
-                data[i][5] = b.getStatus();
-                data[i][6] = b.getTotalCost();
             }
+        });
+
+        JComboBox<String> statusFilter = new JComboBox<>(new String[]{"ALL", "PENDING", "CONFIRMED", "CANCELLED", "COMPLETED"});
+        statusFilter.addActionListener(e -> {
+            String status = (String) statusFilter.getSelectedItem();
+            model.setStatusFilter("ALL".equals(status) ? null : status);
+        });
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("Status:"));
+        filterPanel.add(statusFilter);
+        filterPanel.add(new JLabel(report.occupancy));
 
-            JTable bookingsTable = new JTable(data, columns);
-            JOptionPane.showMessageDialog(frame, new JScrollPane(bookingsTable), "All Bookings", JOptionPane.INFORMATION_MESSAGE);
+        JLabel kpiLabel = new JLabel("Loading KPIs...");
+        JButton rebuildButton = new JButton("Rebuild Rollups");
+        rebuildButton.addActionListener(e -> kpiTask.runOnce(dbHandler, () -> {
+            ReportRollups rollups = new ReportRollups(dbHandler);
+            rollups.rebuild();
+            return monthSummary(rollups);
+        }, summary -> kpiLabel.setText(formatKpis(summary)),
+                error -> kpiLabel.setText("Rebuild failed: " + error.getMessage())));
+        JPanel kpiPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        kpiPanel.add(kpiLabel);
+        kpiPanel.add(rebuildButton);
+        kpiTask.run(dbHandler, () -> monthSummary(new ReportRollups(dbHandler)),
+                summary -> kpiLabel.setText(formatKpis(summary)),
+                error -> kpiLabel.setText("KPIs unavailable: " + error.getMessage()));
 
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(frame, "SQL Error loading reports: " + ex.getMessage());
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(frame, "Unexpected error: " + ex.getMessage());
+        JPanel reportPanel = new JPanel(new BorderLayout());
+        reportPanel.add(filterPanel, BorderLayout.NORTH);
+        reportPanel.add(new JScrollPane(bookingsTable), BorderLayout.CENTER);
+        reportPanel.add(kpiPanel, BorderLayout.SOUTH);
+        try {
+            JOptionPane.showMessageDialog(frame, reportPanel, "All Bookings", JOptionPane.INFORMATION_MESSAGE);
+        } finally {
+            model.dispose();
         }
     }
 
+    private static ReportRollups.Summary monthSummary(ReportRollups rollups) throws SQLException {
+        YearMonth month = YearMonth.now();
+        return rollups.summarize(month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    private static String formatKpis(ReportRollups.Summary summary) {
+        return String.format("%s check-ins: %d bookings %s, %d nights, $%.2f booked; $%.2f collected",
+                YearMonth.from(summary.getFrom()), summary.getBookings(), summary.getBookingsByStatus(),
+                summary.getCheckInNights(), summary.getCheckInRevenue(), summary.getCollected());
+    }
+
+    // Runs on the report task's thread: the calendar may reload from the database.
+    private String occupancySummary() {
+        try {
+            OccupancyCalendar calendar = dbHandler.getOccupancyCalendar();
+            int roomCount = dbHandler.getRoomCatalog().getAll().size();
+            YearMonth month = YearMonth.now();
+            return String.format("Occupancy %s: %.1f%%, %s: %.1f%%",
+                    month, calendar.occupancy(month, roomCount) * 100,
+                    month.plusMonths(1), calendar.occupancy(month.plusMonths(1), roomCount) * 100);
+        } catch (SQLException e) {
+            return "Occupancy unavailable";
+        }
+    }
+
+    private static class ReportSnapshot {
+        private final BookingReportTableModel model;
+        private final String occupancy;
+
+        private ReportSnapshot(BookingReportTableModel model, String occupancy) {
+            this.model = model;
+            this.occupancy = occupancy;
+        }
+    }
 
     public void showForm() {
         frame.setVisible(true);
@@ -1,21 +1,15 @@
 package gui;
 
+import core.Room;
 import core.User;
+import system.BookingEngine;
 import system.DatabaseHandler;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
-import java.util.concurrent.TimeUnit;
-import javax.imageio.ImageIO;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 
 public class BookingForm {
     private JFrame frame;
@@ -29,7 +23,9 @@ public class BookingForm {
     private User currentUser;
     private DatabaseHandler dbHandler;
     private double totalCost;
-    private BufferedImage backgroundImage;
+    private UiTask roomsTask;
+    private UiTask costTask;
+    private UiTask confirmTask;
 
     public BookingForm(User currentUser, DatabaseHandler dbHandler) {
         this.currentUser = currentUser;
@@ -42,18 +38,11 @@ public class BookingForm {
         frame.setLocationRelativeTo(null);
         frame.setLayout(new BorderLayout(10, 10));
 
-        try {
-            String imagePath = "/resources/photos/WhatsApp Image 2025-04-30 at 16.05.59_40ee9eba.jpg";
-            backgroundImage = loadScaledImage(imagePath, 400, 300);
-        } catch (IOException e) {
-            System.err.println("Error loading image: " + e.getMessage());
-            backgroundImage = null;
-        }
-
         JPanel backgroundPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
+                BufferedImage backgroundImage = ImageCache.get(ImageCache.BOOKING_BACKGROUND, 400, 300, this);
                 if (backgroundImage != null) {
                     g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
                 } else {
@@ -72,7 +61,7 @@ public class BookingForm {
 
         JLabel roomLabel = new JLabel("Select Room:");
         roomLabel.setFont(new Font("Arial", Font.BOLD, 14));
-        roomComboBox = new JComboBox<>(loadAvailableRooms());
+        roomComboBox = new JComboBox<>();
         roomComboBox.setFont(new Font("Arial", Font.PLAIN, 14));
 
         JLabel checkInLabel = new JLabel("Check-In Date (yyyy-MM-dd):");
@@ -147,41 +136,24 @@ public class BookingForm {
         backgroundPanel.add(mainPanel, BorderLayout.CENTER);
         frame.add(backgroundPanel, BorderLayout.CENTER);
 
+        roomsTask = new UiTask(frame);
+        costTask = new UiTask(frame);
+        confirmTask = new UiTask(frame);
         calculateCostButton.addActionListener(e -> calculateTotalCost());
         confirmButton.addActionListener(e -> confirmBooking());
+        loadAvailableRooms();
     }
 
-    private BufferedImage loadScaledImage(String path, int targetWidth, int targetHeight) throws IOException {
-        BufferedImage originalImage = ImageIO.read(getClass().getResource(path));
-        if (originalImage == null) {
-            throw new IOException("Image resource not found: " + path);
-        }
-        BufferedImage scaledImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = scaledImage.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-        g2d.dispose();
-        originalImage.flush();
-        return scaledImage;
+    private void loadAvailableRooms() {
+        roomsTask.run(dbHandler, this::queryAvailableRooms,
+                rooms -> roomComboBox.setModel(new DefaultComboBoxModel<>(rooms)),
+                error -> errorLabel.setText("Error loading rooms: " + error.getMessage()));
     }
 
-    private String[] loadAvailableRooms() {
-        List<String> rooms = new ArrayList<>();
-        try {
-            String query = "SELECT room_number, type_name, price_per_night FROM rooms WHERE is_available = 1";
-            try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(query);
-                 ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    int roomNumber = rs.getInt("room_number");
-                    String typeName = rs.getString("type_name");
-                    double price = rs.getDouble("price_per_night");
-                    rooms.add(String.format("Room %d (%s, $%.2f/night)", roomNumber, typeName, price));
-                }
-            }
-        } catch (SQLException e) {
-            errorLabel.setText("Error loading rooms: " + e.getMessage());
-        }
-        return rooms.toArray(new String[0]);
+    private String[] queryAvailableRooms() throws SQLException {
+        return dbHandler.getRoomCatalog().getAvailable().stream()
+                .map(Room::getRoomDetails)
+                .toArray(String[]::new);
     }
 
     private void calculateTotalCost() {
@@ -207,79 +179,51 @@ public class BookingForm {
             return;
         }
 
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        sdf.setLenient(false);
-        Date checkInDate, checkOutDate;
+        LocalDate checkInDate, checkOutDate;
         try {
-            checkInDate = sdf.parse(checkIn);
-            checkOutDate = sdf.parse(checkOut);
-        } catch (ParseException e) {
+            checkInDate = LocalDate.parse(checkIn);
+            checkOutDate = LocalDate.parse(checkOut);
+        } catch (DateTimeParseException e) {
             errorLabel.setText("Invalid date format. Use yyyy-MM-dd.");
             return;
         }
 
-        if (!checkOutDate.after(checkInDate)) {
+        long nights = checkOutDate.toEpochDay() - checkInDate.toEpochDay();
+        if (nights <= 0) {
             errorLabel.setText("Check-out date must be after check-in date.");
             return;
         }
 
+        totalCost = 0.0;
+        costLabel.setText("...");
+        costTask.run(dbHandler, () -> quoteStay(roomNumber, checkInDate, checkOutDate, nights),
+                cost -> {
+                    totalCost = cost;
+                    costLabel.setText(String.format("$%.2f", totalCost));
+                },
+                error -> {
+                    costLabel.setText("$0.00");
+                    errorLabel.setText(error instanceof BookingFormException
+                            ? error.getMessage() : "Error calculating cost: " + error.getMessage());
+                });
+    }
+
+    private double quoteStay(int roomNumber, LocalDate checkIn, LocalDate checkOut, long nights) throws SQLException, BookingFormException {
         if (!isRoomAvailable(roomNumber, checkIn, checkOut)) {
-            errorLabel.setText("Selected room is not available for the specified dates.");
-            return;
+            throw new BookingFormException("Selected room is not available for the specified dates.");
         }
-
-        try {
-            String query = "SELECT price_per_night FROM rooms WHERE room_number = ?";
-            try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(query)) {
-                stmt.setInt(1, roomNumber);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        double pricePerNight = rs.getDouble("price_per_night");
-                        long diffInMillies = checkOutDate.getTime() - checkInDate.getTime();
-                        long nights = TimeUnit.DAYS.convert(diffInMillies, TimeUnit.MILLISECONDS);
-                        if (nights <= 0) {
-                            errorLabel.setText("Invalid date range.");
-                            return;
-                        }
-                        totalCost = pricePerNight * nights;
-                        costLabel.setText(String.format("$%.2f", totalCost));
-                    } else {
-                        errorLabel.setText("Room not found.");
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            errorLabel.setText("Error calculating cost: " + e.getMessage());
+        Room room = dbHandler.getRoomByNumber(roomNumber);
+        if (room == null) {
+            throw new BookingFormException("Room not found.");
         }
+        return room.getPricePerNight() * nights;
     }
 
-    private boolean isRoomAvailable(int roomNumber, String checkIn, String checkOut) {
+    private boolean isRoomAvailable(int roomNumber, LocalDate checkIn, LocalDate checkOut) throws BookingFormException {
         try {
-            String query = """
-                SELECT 1 FROM bookings
-                WHERE room_number = ? AND status NOT IN ('CANCELLED', 'COMPLETED')
-                AND (
-                    (check_in_date <= ? AND check_out_date >= ?) OR
-                    (check_in_date <= ? AND check_out_date >= ?) OR
-                    (check_in_date >= ? AND check_out_date <= ?)
-                )
-                LIMIT 1
-            """;
-            try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(query)) {
-                stmt.setInt(1, roomNumber);
-                stmt.setString(2, checkOut);
-                stmt.setString(3, checkIn);
-                stmt.setString(4, checkOut);
-                stmt.setString(5, checkIn);
-                stmt.setString(6, checkIn);
-                stmt.setString(7, checkOut);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    return !rs.next();
-                }
-            }
+            return dbHandler.getAvailabilityIndex().isAvailable(roomNumber, checkIn.toEpochDay(), checkOut.toEpochDay());
         } catch (SQLException e) {
-            errorLabel.setText("Error checking room availability: " + e.getMessage());
-            return false;
+            throw new BookingFormException("Error checking room availability: " + e.getMessage());
         }
     }
 
@@ -306,41 +250,34 @@ public class BookingForm {
             return;
         }
 
-        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-        sdf.setLenient(false);
+        LocalDate checkInDate, checkOutDate;
         try {
-            sdf.parse(checkIn);
-            sdf.parse(checkOut);
-        } catch (ParseException e) {
+            checkInDate = LocalDate.parse(checkIn);
+            checkOutDate = LocalDate.parse(checkOut);
+        } catch (DateTimeParseException e) {
             errorLabel.setText("Invalid date format. Use yyyy-MM-dd.");
             return;
         }
 
-        try {
-            String query = """
-                INSERT INTO bookings (customer_id, room_number, check_in_date, check_out_date, status, total_cost, booking_date)
-                VALUES (?, ?, ?, ?, 'PENDING', ?, ?)
-            """;
-            try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(query)) {
-                stmt.setInt(1, currentUser.getId());
-                stmt.setInt(2, roomNumber);
-                stmt.setString(3, checkIn);
-                stmt.setString(4, checkOut);
-                stmt.setDouble(5, totalCost);
-                stmt.setString(6, sdf.format(new Date()));
-                stmt.executeUpdate();
-
-                String updateRoomQuery = "UPDATE rooms SET is_available = 0 WHERE room_number = ?";
-                try (PreparedStatement roomStmt = dbHandler.getConnection().prepareStatement(updateRoomQuery)) {
-                    roomStmt.setInt(1, roomNumber);
-                    roomStmt.executeUpdate();
-                }
+        double cost = totalCost;
+        LocalDate bookingDate = LocalDate.now();
+        confirmTask.runOnce(dbHandler, () -> saveBooking(roomNumber, checkInDate, checkOutDate, cost, bookingDate),
+                bookingId -> {
+                    JOptionPane.showMessageDialog(frame, "Booking confirmed successfully!");
+                    frame.dispose();
+                },
+                error -> errorLabel.setText("Error saving booking: " + error.getMessage()));
+    }
 
-                JOptionPane.showMessageDialog(frame, "Booking confirmed successfully!");
-                frame.dispose();
-            }
-        } catch (SQLException e) {
-            errorLabel.setText("Error saving booking: " + e.getMessage());
+    private Integer saveBooking(int roomNumber, LocalDate checkIn, LocalDate checkOut, double cost, LocalDate bookingDate) throws SQLException {
+        return new BookingEngine(dbHandler).book(currentUser.getId(), roomNumber, checkIn, checkOut, cost, bookingDate);
+    }
+
+    private static class BookingFormException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        private BookingFormException(String message) {
+            super(message);
         }
     }
 
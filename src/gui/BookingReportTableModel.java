@@ -0,0 +1,318 @@
+package gui;
+
+import system.DatabaseHandler;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Booking report rows fetched a page at a time with keyset queries. Only pages
+ * the table actually paints are loaded, plus the one after each painted page;
+ * sorting and the status filter are applied in SQL, and a bounded number of
+ * pages is kept. Only columns with a (column, booking_id) index can be sorted,
+ * and a page is always read from the end key of the page before it, so jumping
+ * ahead walks the pages in between along the index instead of counting rows.
+ */
+public class BookingReportTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+    private static final int PAGE_SIZE = 100;
+    private static final int MAX_CACHED_PAGES = 20;
+    private static final String LOADING = "...";
+    private static final String[] COLUMNS = {"Booking ID", "Customer", "Room", "Check-In", "Check-Out", "Status", "Total Cost"};
+    // Null where the column has no report index to page along.
+    private static final String[] SORT_COLUMNS = {"booking_id", null, "room_number", "check_in_day", "check_out_day", null, null};
+    private static final String PAGE_QUERY = """
+            SELECT b.booking_id, COALESCE(u.name, '#' || b.customer_id) AS customer, b.room_number,
+                   b.check_in_day, b.check_out_day, b.status, b.total_cost
+            FROM bookings b LEFT JOIN users u ON u.id = b.customer_id
+            """;
+
+    private final DatabaseHandler dbHandler;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "booking-report-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<Integer, Object[][]> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Map<Integer, Boolean> pending = new HashMap<>();
+    // Written by the loader; replaced on reload so a stale task only fills the old map.
+    private volatile Map<Integer, Object[]> pageEndKeys = new ConcurrentHashMap<>();
+    private int rowCount;
+    private int sortColumn;
+    private boolean ascending = true;
+    private String statusFilter;
+    private int generation;
+
+    // Counts the report rows, so construct it off the Event Dispatch Thread.
+    public BookingReportTableModel(DatabaseHandler dbHandler) throws SQLException {
+        this.dbHandler = dbHandler;
+        this.rowCount = countRows(null);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int rowIndex, int columnIndex) {
+        int page = rowIndex / PAGE_SIZE;
+        Object[][] rows = pages.get(page);
+        if (rows == null) {
+            requestPage(page);
+            return LOADING;
+        }
+        // Painting a loaded page prefetches the next one, so scrolling on rarely shows the placeholder.
+        requestPage(page + 1);
+        int offset = rowIndex % PAGE_SIZE;
+        if (offset >= rows.length) {
+            return null;
+        }
+        Object value = rows[offset][columnIndex];
+        // Stay dates are kept as epoch days so they can double as keyset sort keys.
+        if ((columnIndex == 3 || columnIndex == 4) && value instanceof Number) {
+            return LocalDate.ofEpochDay(((Number) value).longValue());
+        }
+        return value;
+    }
+
+    public boolean isSortable(int column) {
+        return SORT_COLUMNS[column] != null;
+    }
+
+    public void sortBy(int column) {
+        if (!isSortable(column)) {
+            return;
+        }
+        if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            ascending = true;
+        }
+        reload();
+    }
+
+    public void setStatusFilter(String status) {
+        statusFilter = status;
+        reload();
+    }
+
+    public void dispose() {
+        loader.shutdownNow();
+    }
+
+    private void reload() {
+        int requestGeneration = ++generation;
+        pages.clear();
+        pageEndKeys = new ConcurrentHashMap<>();
+        pending.clear();
+        rowCount = 0;
+        fireTableDataChanged();
+        String status = statusFilter;
+        load(() -> {
+            int count;
+            try {
+                count = countRows(status);
+            } catch (SQLException e) {
+                System.err.println("Error counting bookings: " + e.getMessage());
+                count = 0;
+            }
+            int total = count;
+            SwingUtilities.invokeLater(() -> {
+                if (requestGeneration == generation) {
+                    rowCount = total;
+                    fireTableDataChanged();
+                }
+            });
+        });
+    }
+
+    private void requestPage(int page) {
+        if (pages.containsKey(page) || pending.containsKey(page) || page * PAGE_SIZE >= rowCount) {
+            return;
+        }
+        pending.put(page, true);
+        int requestGeneration = generation;
+        Map<Integer, Object[]> endKeys = pageEndKeys;
+        int keyColumn = sortColumn;
+        boolean asc = ascending;
+        String status = statusFilter;
+        load(() -> {
+            try {
+                int known = page - 1;
+                while (known >= 0 && !endKeys.containsKey(known)) {
+                    known--;
+                }
+                Object[] key = known < 0 ? null : endKeys.get(known);
+                for (int skipped = known + 1; skipped < page; skipped++) {
+                    key = endKey(fetchPage(key, keyColumn, asc, status), keyColumn);
+                    if (key == null) {
+                        break;
+                    }
+                    endKeys.put(skipped, key);
+                }
+                Object[][] rows = page > 0 && key == null ? new Object[0][] : fetchPage(key, keyColumn, asc, status);
+                Object[] end = endKey(rows, keyColumn);
+                if (end != null) {
+                    endKeys.put(page, end);
+                }
+                SwingUtilities.invokeLater(() -> pageLoaded(requestGeneration, page, rows));
+            } catch (SQLException e) {
+                System.err.println("Error loading booking report page " + page + ": " + e.getMessage());
+                SwingUtilities.invokeLater(() -> {
+                    if (requestGeneration == generation) {
+                        pending.remove(page);
+                    }
+                });
+            }
+        });
+    }
+
+    private void pageLoaded(int requestGeneration, int page, Object[][] rows) {
+        if (requestGeneration != generation) {
+            return;
+        }
+        pending.remove(page);
+        pages.put(page, rows);
+        int first = page * PAGE_SIZE;
+        int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+        if (last >= first) {
+            fireTableRowsUpdated(first, last);
+        }
+    }
+
+    // Runs on the loader thread, which gives back its pooled reader after every task.
+    private void load(Runnable work) {
+        loader.submit(() -> {
+            try {
+                work.run();
+            } finally {
+                dbHandler.releaseReadConnection();
+            }
+        });
+    }
+
+    private int countRows(String status) throws SQLException {
+        String query = "SELECT COUNT(*) FROM bookings" + (status == null ? "" : " WHERE status = ?");
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(query)) {
+            if (status != null) {
+                stmt.setString(1, status);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        }
+    }
+
+    private static Object[] endKey(Object[][] rows, int keyColumn) {
+        if (rows.length == 0) {
+            return null;
+        }
+        Object[] last = rows[rows.length - 1];
+        return new Object[]{last[keyColumn], last[0]};
+    }
+
+    // SQLite sorts NULL days first ascending and last descending; each part is read on its own indexed range.
+    private Object[][] fetchPage(Object[] startKey, int keyColumn, boolean asc, String status) throws SQLException {
+        String column = SORT_COLUMNS[keyColumn];
+        boolean nullable = column.endsWith("_day");
+        boolean inNulls = startKey != null && startKey[0] == null;
+        List<Object[]> rows = new ArrayList<>(PAGE_SIZE);
+        if (asc && nullable && (startKey == null || inNulls)) {
+            readPart(rows, column, true, startKey, true, status);
+        }
+        if (!inNulls) {
+            readPart(rows, column, false, startKey, asc, status);
+        } else if (asc) {
+            readPart(rows, column, false, null, true, status);
+        }
+        if (!asc && nullable) {
+            readPart(rows, column, true, inNulls ? startKey : null, false, status);
+        }
+        return rows.toArray(new Object[0][]);
+    }
+
+    private void readPart(List<Object[]> rows, String column, boolean nulls, Object[] startKey, boolean asc, String status) throws SQLException {
+        int limit = PAGE_SIZE - rows.size();
+        if (limit <= 0) {
+            return;
+        }
+        boolean byId = nulls || column.equals("booking_id");
+        String op = asc ? ">" : "<";
+        List<String> conditions = new ArrayList<>();
+        if (status != null) {
+            conditions.add("b.status = ?");
+        }
+        if (nulls) {
+            conditions.add("b." + column + " IS NULL");
+        } else if (column.endsWith("_day")) {
+            conditions.add("b." + column + " IS NOT NULL");
+        }
+        if (startKey != null) {
+            conditions.add(byId ? "b.booking_id " + op + " ?" : "(b." + column + ", b.booking_id) " + op + " (?, ?)");
+        }
+        String query = PAGE_QUERY
+                + (conditions.isEmpty() ? "" : " WHERE " + String.join(" AND ", conditions))
+                + orderBy(byId ? "booking_id" : column, asc) + " LIMIT " + limit;
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(query)) {
+            int index = 1;
+            if (status != null) {
+                stmt.setString(index++, status);
+            }
+            if (startKey != null) {
+                if (!byId) {
+                    stmt.setObject(index++, startKey[0]);
+                }
+                stmt.setObject(index, startKey[1]);
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    rows.add(new Object[]{
+                            rs.getInt("booking_id"),
+                            rs.getString("customer"),
+                            rs.getInt("room_number"),
+                            rs.getObject("check_in_day"),
+                            rs.getObject("check_out_day"),
+                            rs.getString("status"),
+                            rs.getDouble("total_cost")
+                    });
+                }
+            }
+        }
+    }
+
+    private static String orderBy(String column, boolean asc) {
+        String direction = asc ? " ASC" : " DESC";
+        return column.equals("booking_id")
+                ? " ORDER BY b.booking_id" + direction
+                : " ORDER BY b." + column + direction + ", b.booking_id" + direction;
+    }
+}
@@ -1,31 +1,45 @@
 package gui;
 
 import core.Booking;
-import core.User;
+import core.Customer;
+import core.Session;
 import gui.LoginForm;
 import payment.CardPayment;
+import system.BookingEngine;
 import system.DatabaseHandler;
+import system.PaymentQueue;
 
 import javax.swing.*;
 import java.awt.*;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class CustomerDashboard {
     private JFrame frame;
-    private User customer;
+    private Customer customer;
     private DatabaseHandler dbHandler;
     private JList<String> bookingList;
     private DefaultListModel<String> bookingListModel;
+    private UiTask loadTask;
+    private UiTask bookTask;
+    private UiTask payTask;
+    // One idempotency key per booking until its payment settles, so a resubmit cannot charge twice.
+    private final Map<Integer, String> paymentKeys = new HashMap<>();
+    private final Map<Integer, CompletableFuture<PaymentQueue.Result>> paymentsInFlight = new HashMap<>();
 
-    public CustomerDashboard(User customer, DatabaseHandler dbHandler) {
-        this.customer = customer;
-        this.dbHandler = dbHandler;
+    public CustomerDashboard(Session session) {
+        this.customer = session.getUser(Customer.class);
+        this.dbHandler = session.getDbHandler();
 
         frame = new JFrame("Customer Dashboard - " + customer.getName());
         frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
@@ -58,6 +72,9 @@ public class CustomerDashboard {
         logoutButton.setFont(new Font("Arial", Font.BOLD, 14));
         frame.add(logoutButton, BorderLayout.SOUTH);
 
+        loadTask = new UiTask(frame);
+        bookTask = new UiTask(frame);
+        payTask = new UiTask(frame);
         loadPendingBookings();
 
         bookRoomButton.addActionListener(e -> bookNewRoom());
@@ -78,32 +95,38 @@ public class CustomerDashboard {
     }
 
     private void loadPendingBookings() {
-        bookingListModel.clear();
+        loadTask.run(dbHandler, this::queryPendingBookings, this::showPendingBookings,
+                error -> JOptionPane.showMessageDialog(frame, "Error loading bookings: " + error.getMessage()));
+    }
+
+    private List<Booking> queryPendingBookings() throws SQLException {
         List<Booking> pendingBookings = new ArrayList<>();
-        try {
-            String query = "SELECT booking_id, customer_id, room_number, check_in_date, check_out_date, status, total_cost, booking_date " +
-                    "FROM bookings WHERE customer_id = ? AND status = 'PENDING'";
-            PreparedStatement stmt = dbHandler.getConnection().prepareStatement(query);
+        String query = "SELECT booking_id, customer_id, room_number, check_in_day, check_out_day, status, total_cost, booking_date " +
+                "FROM bookings WHERE customer_id = ? AND status = 'PENDING'";
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(query)) {
             stmt.setInt(1, customer.getId());
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                Booking booking = new Booking(
-                        rs.getInt("booking_id"),
-                        rs.getInt("customer_id"),
-                        rs.getInt("room_number"),
-                        rs.getString("check_in_date"),
-                        rs.getString("check_out_date"),
-                        rs.getString("status"),
-                        rs.getDouble("total_cost"),
-                        rs.getString("booking_date"),
-                        dbHandler
-                );
-                pendingBookings.add(booking);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Booking booking = new Booking(
+                            rs.getInt("booking_id"),
+                            rs.getInt("customer_id"),
+                            rs.getInt("room_number"),
+                            rs.getInt("check_in_day"),
+                            rs.getInt("check_out_day"),
+                            rs.getString("status"),
+                            rs.getDouble("total_cost"),
+                            rs.getString("booking_date"),
+                            dbHandler
+                    );
+                    pendingBookings.add(booking);
+                }
             }
-        } catch (SQLException ex) {
-            JOptionPane.showMessageDialog(frame, "Error loading bookings: " + ex.getMessage());
         }
+        return pendingBookings;
+    }
 
+    private void showPendingBookings(List<Booking> pendingBookings) {
+        bookingListModel.clear();
         if (pendingBookings.isEmpty()) {
             JOptionPane.showMessageDialog(frame, "No pending bookings available.");
         } else {
@@ -130,20 +153,31 @@ public class CustomerDashboard {
 
         int result = JOptionPane.showConfirmDialog(frame, panel, "Book a Room", JOptionPane.OK_CANCEL_OPTION);
         if (result == JOptionPane.OK_OPTION) {
+            LocalDate checkInDate, checkOutDate;
             try {
-                String checkInDate = checkInDateField.getText().trim();
-                String checkOutDate = checkOutDateField.getText().trim();
-                int roomNumber = Integer.parseInt(roomNumberField.getText().trim());
-                double totalCost = 100.0; // مثال، يمكن تعدله بناءً على سعر الغرفة
-
-                Booking booking = new Booking(customer.getId(), roomNumber, checkInDate, checkOutDate, totalCost, dbHandler);
-                JOptionPane.showMessageDialog(frame, "Room booked successfully! Booking ID: " + booking.getBookingId());
-                loadPendingBookings();
+                checkInDate = LocalDate.parse(checkInDateField.getText().trim());
+                checkOutDate = LocalDate.parse(checkOutDateField.getText().trim());
+            } catch (DateTimeParseException e) {
+                JOptionPane.showMessageDialog(frame, "Invalid date format. Use YYYY-MM-DD.");
+                return;
+            }
+            int roomNumber;
+            try {
+                roomNumber = Integer.parseInt(roomNumberField.getText().trim());
             } catch (NumberFormatException e) {
                 JOptionPane.showMessageDialog(frame, "Invalid room number.");
-            } catch (SQLException e) {
-                JOptionPane.showMessageDialog(frame, "Error booking room: " + e.getMessage());
+                return;
             }
+            double totalCost = 100.0; // مثال، يمكن تعدله بناءً على سعر الغرفة
+
+            bookTask.runOnce(dbHandler,
+                    () -> new BookingEngine(dbHandler).book(customer.getId(), roomNumber, checkInDate, checkOutDate, totalCost,
+                            LocalDate.now()),
+                    bookingId -> {
+                        JOptionPane.showMessageDialog(frame, "Room booked successfully! Booking ID: " + bookingId);
+                        loadPendingBookings();
+                    },
+                    error -> JOptionPane.showMessageDialog(frame, "Error booking room: " + error.getMessage()));
         }
     }
 
@@ -154,6 +188,10 @@ public class CustomerDashboard {
     }
 
     private void payForBooking(int bookingId) {
+        if (paymentsInFlight.containsKey(bookingId)) {
+            JOptionPane.showMessageDialog(frame, "A payment for this booking is already being processed.");
+            return;
+        }
         JTextField cardNumberField = new JTextField(16);
         JTextField cardHolderField = new JTextField(20);
         JTextField expiryDateField = new JTextField(5);
@@ -171,35 +209,55 @@ public class CustomerDashboard {
 
         int result = JOptionPane.showConfirmDialog(frame, panel, "Enter Card Details", JOptionPane.OK_CANCEL_OPTION);
         if (result == JOptionPane.OK_OPTION) {
-            try {
-                CardPayment payment = new CardPayment(
-                        cardNumberField.getText(),
-                        cardHolderField.getText(),
-                        expiryDateField.getText(),
-                        cvvField.getText(),
-                        dbHandler,
-                        bookingId
-                );
-                double totalCost = getBookingCost(bookingId);
-                if (payment.processPayment(totalCost)) {
-                    JOptionPane.showMessageDialog(frame, "Payment successful!");
-                    loadPendingBookings();
-                } else {
-                    JOptionPane.showMessageDialog(frame, "Payment failed. Please check your card details.");
-                }
-            } catch (Exception ex) {
-                JOptionPane.showMessageDialog(frame, "Error processing payment: " + ex.getMessage());
+            CardPayment payment = new CardPayment(
+                    cardNumberField.getText(),
+                    cardHolderField.getText(),
+                    expiryDateField.getText(),
+                    cvvField.getText(),
+                    dbHandler,
+                    bookingId
+            );
+            String key = paymentKeys.computeIfAbsent(bookingId, id -> UUID.randomUUID().toString());
+            payTask.runOnce(dbHandler, () -> getBookingCost(bookingId),
+                    cost -> {
+                        CompletableFuture<PaymentQueue.Result> future = payment.submitPayment(key, cost);
+                        paymentsInFlight.put(bookingId, future);
+                        future.whenComplete((settled, error) -> SwingUtilities.invokeLater(
+                                () -> paymentSettled(bookingId, settled, error)));
+                    },
+                    error -> JOptionPane.showMessageDialog(frame, "Error processing payment: " + error.getMessage()));
+        }
+    }
+
+    private void paymentSettled(int bookingId, PaymentQueue.Result result, Throwable error) {
+        paymentsInFlight.remove(bookingId);
+        if (error != null) {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            // Nothing was recorded for the key, so keep it for the retry unless the card itself was rejected.
+            if (cause instanceof IllegalArgumentException) {
+                paymentKeys.remove(bookingId);
             }
+            JOptionPane.showMessageDialog(frame, "Payment failed: " + cause.getMessage());
+            return;
+        }
+        paymentKeys.remove(bookingId);
+        if (result.isCompleted()) {
+            JOptionPane.showMessageDialog(frame, "Payment successful!");
+            loadPendingBookings();
+        } else {
+            JOptionPane.showMessageDialog(frame, "Payment failed: " + result.getMessage());
         }
     }
 
     private double getBookingCost(int bookingId) throws SQLException {
         String query = "SELECT total_cost FROM bookings WHERE booking_id = ?";
-        PreparedStatement stmt = dbHandler.getConnection().prepareStatement(query);
-        stmt.setInt(1, bookingId);
-        ResultSet rs = stmt.executeQuery();
-        if (rs.next()) {
-            return rs.getDouble("total_cost");
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(query)) {
+            stmt.setInt(1, bookingId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getDouble("total_cost");
+                }
+            }
         }
         throw new SQLException("Booking not found: " + bookingId);
     }
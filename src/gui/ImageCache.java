@@ -0,0 +1,130 @@
+package gui;
+
+import system.StartupTimeline;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decoded window backgrounds, shared by every form. Images are decoded and
+ * scaled on a background thread and kept per target size under soft
+ * references, so the garbage collector can take them back when memory runs
+ * short. A window asks with {@link #get} while painting. Until the image is
+ * ready it gets null and paints its placeholder, and it is repainted once
+ * the image arrives.
+ */
+public final class ImageCache {
+    public static final String LOGIN_BACKGROUND = "/resources/photos/photo-1566073771259-6a8506099945.jpeg";
+    public static final String BOOKING_BACKGROUND = "/resources/photos/WhatsApp Image 2025-04-30 at 16.05.59_40ee9eba.jpg";
+    public static final String ADMIN_BACKGROUND = "/resources/photos/admin.png";
+    public static final String RECEPTIONIST_BACKGROUND = "/resources/photos/receptionist_background.jpg";
+
+    private static final ExecutorService DECODER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "image-decoder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+    private static final Map<String, SoftReference<BufferedImage>> originals = new ConcurrentHashMap<>();
+    private static final Map<String, SoftReference<BufferedImage>> scaled = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<BufferedImage>> loading = new ConcurrentHashMap<>();
+    // Resources that are missing or unreadable, so they are not retried on every paint.
+    private static final Map<String, Boolean> failed = new ConcurrentHashMap<>();
+
+    private ImageCache() {
+    }
+
+    // Starts decoding every window background at its window size; called once at startup.
+    public static void preload() {
+        load(LOGIN_BACKGROUND, 500, 600);
+        load(BOOKING_BACKGROUND, 400, 300);
+        load(ADMIN_BACKGROUND, 800, 600);
+        load(RECEPTIONIST_BACKGROUND, 800, 600);
+    }
+
+    // The image scaled to the given size, or null while it is loading or if it cannot be read.
+    public static BufferedImage get(String path, int width, int height, Component repaintWhenReady) {
+        BufferedImage image = dereference(scaled.get(key(path, width, height)));
+        if (image != null || failed.containsKey(path)) {
+            return image;
+        }
+        load(path, width, height).thenRun(() -> SwingUtilities.invokeLater(repaintWhenReady::repaint));
+        return null;
+    }
+
+    private static CompletableFuture<BufferedImage> load(String path, int width, int height) {
+        String key = key(path, width, height);
+        CompletableFuture<BufferedImage> future = new CompletableFuture<>();
+        CompletableFuture<BufferedImage> pending = loading.putIfAbsent(key, future);
+        if (pending != null) {
+            return pending;
+        }
+        DECODER.execute(() -> {
+            try {
+                BufferedImage image = dereference(scaled.get(key));
+                if (image == null) {
+                    image = scale(original(path), width, height);
+                    scaled.put(key, new SoftReference<>(image));
+                }
+                loading.remove(key, future);
+                future.complete(image);
+            } catch (Throwable e) {
+                // Errors too, or waiters on the future would hang; an Error is still rethrown to the decoder thread.
+                failed.put(path, Boolean.TRUE);
+                loading.remove(key, future);
+                System.err.println("Error loading image: " + e);
+                future.completeExceptionally(e);
+                if (e instanceof Error) {
+                    throw (Error) e;
+                }
+            }
+        });
+        return future;
+    }
+
+    private static BufferedImage original(String path) {
+        BufferedImage image = dereference(originals.get(path));
+        if (image != null) {
+            return image;
+        }
+        StartupTimeline.Phase phase = StartupTimeline.start("image decode " + path.substring(path.lastIndexOf('/') + 1));
+        try (InputStream in = ImageCache.class.getResourceAsStream(path)) {
+            image = in == null ? null : ImageIO.read(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read image " + path + ": " + e.getMessage(), e);
+        }
+        if (image == null) {
+            throw new IllegalStateException("Image resource not found: " + path);
+        }
+        phase.end();
+        originals.put(path, new SoftReference<>(image));
+        return image;
+    }
+
+    private static BufferedImage scale(BufferedImage original, int width, int height) {
+        BufferedImage scaledImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = scaledImage.createGraphics();
+        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2d.drawImage(original, 0, 0, width, height, null);
+        g2d.dispose();
+        return scaledImage;
+    }
+
+    private static BufferedImage dereference(SoftReference<BufferedImage> ref) {
+        return ref == null ? null : ref.get();
+    }
+
+    private static String key(String path, int width, int height) {
+        return path + "@" + width + "x" + height;
+    }
+}
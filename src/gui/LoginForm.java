@@ -1,20 +1,17 @@
 package gui;
 
-import core.User;
+import core.Session;
 import gui.AdminDashboard;
 import gui.CustomerDashboard;
 import gui.ReceptionistDashboard;
+import system.CredentialService.LoginFailedException;
 import system.DatabaseHandler;
+import system.StartupTimeline;
 import javax.swing.*;
 import javax.swing.border.Border;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.regex.Pattern;
-import javax.imageio.ImageIO;
 
 public class LoginForm {
     private JFrame frame;
@@ -22,36 +19,33 @@ public class LoginForm {
     private JPasswordField passwordField;
     private JButton loginButton;
     private JLabel errorLabel;
-    private BufferedImage backgroundImage;
     private DatabaseHandler dbHandler;
+    private UiTask loginTask;
+    private boolean painted;
 
     public LoginForm() {
         dbHandler = new DatabaseHandler();
-        try {
+        frame = new JFrame("Hotel Management System - Login");
+        // Connects while the window is built and shown; a sign-in before then waits for it off the EDT.
+        new UiTask(frame).run(dbHandler, () -> {
             dbHandler.connect();
-        } catch (SQLException e) {
-            System.err.println("Failed to connect to database: " + e.getMessage());
-            System.exit(1);
-        }
+            return null;
+        }, connected -> { }, this::connectFailed);
 
-        frame = new JFrame("Hotel Management System - Login");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         frame.setSize(500, 600);
         frame.setLocationRelativeTo(null);
         frame.setLayout(new BorderLayout(10, 10));
 
-        try {
-            String imagePath = "/resources/photos/photo-1566073771259-6a8506099945.jpeg";
-            backgroundImage = loadScaledImage(imagePath, 500, 600);
-        } catch (IOException e) {
-            System.err.println("Error loading image: " + e.getMessage());
-            backgroundImage = null;
-        }
-
         JPanel backgroundPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
+                if (!painted) {
+                    painted = true;
+                    StartupTimeline.firstPaint();
+                }
+                BufferedImage backgroundImage = ImageCache.get(ImageCache.LOGIN_BACKGROUND, 500, 600, this);
                 if (backgroundImage != null) {
                     g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
                 } else {
@@ -129,27 +123,14 @@ public class LoginForm {
 
         frame.add(backgroundPanel, BorderLayout.CENTER);
 
-        loginButton.addActionListener(e -> {
-            User user = validateCredentials();
-            if (user != null) {
-                errorLabel.setText("Login successful!");
-                redirectToDashboard(user);
-            }
-        });
+        loginTask = new UiTask(frame);
+        loginButton.addActionListener(e -> login());
     }
 
-    private BufferedImage loadScaledImage(String path, int targetWidth, int targetHeight) throws IOException {
-        BufferedImage originalImage = ImageIO.read(getClass().getResource(path));
-        if (originalImage == null) {
-            throw new IOException("Image resource not found: " + path);
-        }
-        BufferedImage scaledImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = scaledImage.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-        g2d.dispose();
-        originalImage.flush();
-        return scaledImage;
+    private void connectFailed(Throwable error) {
+        System.err.println("Failed to connect to database: " + error.getMessage());
+        loginButton.setEnabled(false);
+        errorLabel.setText("Cannot open the database: " + error.getMessage());
     }
 
     private Border createRoundedBorder() {
@@ -163,91 +144,50 @@ public class LoginForm {
         return username != null && username.length() >= 4 && Pattern.matches("^[A-Za-z0-9_]+$", username);
     }
 
-    private User validateCredentials() {
+    private void login() {
         String username = usernameField.getText().trim();
         String password = new String(passwordField.getPassword());
 
-        System.out.println("Attempting login with username: " + username);
-
         if (username.isEmpty() || password.isEmpty()) {
             errorLabel.setText("Please enter username and password.");
-            System.out.println("Username or password is empty");
-            return null;
+            return;
         }
 
         if (!isValidUsername(username)) {
             errorLabel.setText("Username must be at least 4 characters and contain only letters, numbers, or underscores.");
-            System.out.println("Invalid username format");
-            return null;
+            return;
         }
 
-        try {
-            String query = "SELECT id, name, email, password, role FROM users WHERE username = ?";
-            System.out.println("Executing query: " + query + " with username: " + username);
-            try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(query)) {
-                stmt.setString(1, username);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        int userId = rs.getInt("id");
-                        String name = rs.getString("name");
-                        String email = rs.getString("email");
-                        String storedPassword = rs.getString("password");
-                        String role = rs.getString("role");
-
-                        System.out.println("User found: ID=" + userId + ", Name=" + name + ", Email=" + email + ", Role=" + role);
-                        System.out.println("Stored password: " + storedPassword);
-                        System.out.println("Input password: " + password);
-
-                        if (role == null || role.trim().isEmpty()) {
-                            errorLabel.setText("User role is missing in database.");
-                            System.out.println("Role is null or empty");
-                            return null;
-                        }
-
-                        if (storedPassword.equals(password)) {
-                            System.out.println("Password match! Login successful");
-                            return new User(userId, name, username, password, email, role) {
-                                @Override
-                                public String getRole() {
-                                    return role;
-                                }
-                            };
-                        } else {
-                            errorLabel.setText("Incorrect password.");
-                            System.out.println("Password mismatch");
-                        }
+        errorLabel.setText("Signing in...");
+        loginTask.run(() -> Session.signIn(dbHandler, username, password),
+                session -> {
+                    errorLabel.setText("Login successful!");
+                    redirectToDashboard(session);
+                },
+                error -> {
+                    if (error instanceof LoginFailedException) {
+                        errorLabel.setText(error.getMessage());
                     } else {
-                        errorLabel.setText("Username not found.");
-                        System.out.println("No user found with username: " + username);
+                        errorLabel.setText("Database error: " + error.getMessage());
+                        System.err.println("SQL Exception: " + error.getMessage());
                     }
-                }
-            }
-        } catch (SQLException ex) {
-            errorLabel.setText("Database error: " + ex.getMessage());
-            System.err.println("SQL Exception: " + ex.getMessage());
-        }
-        return null;
+                });
     }
 
-    private void redirectToDashboard(User user) {
+    private void redirectToDashboard(Session session) {
         frame.dispose();
-        String role = user.getRole();
-        if (role == null || role.trim().isEmpty()) {
-            errorLabel.setText("User role is missing or invalid.");
-            return;
-        }
-        switch (role.toUpperCase()) {
+        switch (session.getUser().getRole().toUpperCase()) {
             case "ADMIN":
-                new AdminDashboard (user, dbHandler).showForm();
+                new AdminDashboard(session).showForm();
                 break;
             case "CUSTOMER":
-                new CustomerDashboard (user, dbHandler).showForm();
+                new CustomerDashboard(session).showForm();
                 break;
             case "RECEPTIONIST":
-                new ReceptionistDashboard (user, dbHandler).showForm();
+                new ReceptionistDashboard(session).showForm();
                 break;
             default:
-                errorLabel.setText("Invalid user role: " + role);
+                errorLabel.setText("Invalid user role: " + session.getUser().getRole());
                 break;
         }
     }
@@ -257,6 +197,13 @@ public class LoginForm {
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(() -> new LoginForm().showForm());
+        StartupTimeline.mark("JVM up");
+        ImageCache.preload();
+        SwingUtilities.invokeLater(() -> {
+            StartupTimeline.Phase phase = StartupTimeline.start("login window built");
+            LoginForm form = new LoginForm();
+            phase.end();
+            form.showForm();
+        });
     }
 }
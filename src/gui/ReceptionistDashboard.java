@@ -6,23 +6,20 @@ import system.DatabaseHandler;
 import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
-import java.io.IOException;
 import java.sql.SQLException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 import java.util.List;
-import javax.imageio.ImageIO;
 
 public class ReceptionistDashboard {
     private JFrame frame;
-    private User currentUser;
+    private Receptionist receptionist;
     private DatabaseHandler dbHandler;
-    private BufferedImage backgroundImage;
+    private UiTask loadTask;
+    private UiTask updateTask;
 
-    public ReceptionistDashboard(User currentUser, DatabaseHandler dbHandler) {
-        this.currentUser = currentUser;
-        this.dbHandler = dbHandler;
+    public ReceptionistDashboard(Session session) {
+        this.receptionist = session.getUser(Receptionist.class);
+        this.dbHandler = session.getDbHandler();
 
         frame = new JFrame("Receptionist Dashboard");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -30,18 +27,11 @@ public class ReceptionistDashboard {
         frame.setLocationRelativeTo(null);
         frame.setLayout(new BorderLayout());
 
-        try {
-            String imagePath = "/resources/photos/receptionist_background.jpg";
-            backgroundImage = loadScaledImage(imagePath, 800, 600);
-        } catch (IOException e) {
-            System.err.println("Error loading image: " + e.getMessage());
-            backgroundImage = null;
-        }
-
         JPanel backgroundPanel = new JPanel() {
             @Override
             protected void paintComponent(Graphics g) {
                 super.paintComponent(g);
+                BufferedImage backgroundImage = ImageCache.get(ImageCache.RECEPTIONIST_BACKGROUND, 800, 600, this);
                 if (backgroundImage != null) {
                     g.drawImage(backgroundImage, 0, 0, getWidth(), getHeight(), this);
                 } else {
@@ -52,7 +42,7 @@ public class ReceptionistDashboard {
         };
         backgroundPanel.setLayout(new BorderLayout());
 
-        JLabel welcomeLabel = new JLabel("Welcome, Receptionist " + currentUser.getUserName(), SwingConstants.CENTER);
+        JLabel welcomeLabel = new JLabel("Welcome, Receptionist " + receptionist.getUserName(), SwingConstants.CENTER);
         welcomeLabel.setFont(new Font("Arial", Font.BOLD, 24));
         welcomeLabel.setForeground(Color.WHITE);
         welcomeLabel.setOpaque(true);
@@ -82,170 +72,154 @@ public class ReceptionistDashboard {
         backgroundPanel.add(welcomeLabel, BorderLayout.NORTH);
         backgroundPanel.add(buttonPanel, BorderLayout.CENTER);
         frame.add(backgroundPanel, BorderLayout.CENTER);
-    }
 
-    private BufferedImage loadScaledImage(String path, int targetWidth, int targetHeight) throws IOException {
-        BufferedImage originalImage = ImageIO.read(getClass().getResource(path));
-        if (originalImage == null) {
-            throw new IOException("Image resource not found: " + path);
-        }
-        BufferedImage scaledImage = new BufferedImage(targetWidth, targetHeight, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g2d = scaledImage.createGraphics();
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.drawImage(originalImage, 0, 0, targetWidth, targetHeight, null);
-        g2d.dispose();
-        originalImage.flush();
-        return scaledImage;
+        loadTask = new UiTask(frame);
+        updateTask = new UiTask(frame);
     }
 
     private void checkInGuest() {
-        try {
-            Receptionist receptionist = new Receptionist(
-                    currentUser.getId(),
-                    currentUser.getName(),
-                    currentUser.getUserName(),
-                    currentUser.getPassword(),
-                    currentUser.getEmail(),
-                    1,
-                    "Main Branch",
-                    "Day",
-                    dbHandler
-            );
-
-            List<Booking> bookings = receptionist.viewAllBookings();
-            List<Booking> pendingBookings = bookings.stream()
-                    .filter(b -> b.getStatus() != null && b.getStatus().equals("PENDING"))
-                    .toList();
+        loadTask.run(dbHandler, () -> loadDesk(List.of("PENDING", "CONFIRMED"), true), this::showCheckIn,
+                error -> JOptionPane.showMessageDialog(frame, "Error checking in guest: " + error.getMessage()));
+    }
 
-            if (pendingBookings.isEmpty()) {
-                JOptionPane.showMessageDialog(frame, "No pending bookings available.");
-                return;
-            }
+    private void showCheckIn(DeskSnapshot desk) {
+        List<Booking> arrivals = desk.bookings;
 
-            String[] bookingOptions = pendingBookings.stream()
-                    .map(b -> "Booking ID: " + b.getBookingID() + " (Customer: " + b.getCustomerId() + ")")
-                    .toArray(String[]::new);
+        if (arrivals.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, "No bookings awaiting check-in.");
+            return;
+        }
 
-            JComboBox<String> bookingComboBox = new JComboBox<>(bookingOptions);
-            JPanel panel = new JPanel();
-            panel.add(new JLabel("Select Booking:"));
-            panel.add(bookingComboBox);
+        String[] bookingOptions = arrivals.stream()
+                .map(b -> "Booking ID: " + b.getBookingID() + " (Customer: " + b.getCustomerId() + ")")
+                .toArray(String[]::new);
 
-            int result = JOptionPane.showConfirmDialog(frame, panel, "Check-In Guest", JOptionPane.OK_CANCEL_OPTION);
-            if (result != JOptionPane.OK_OPTION) return;
+        JComboBox<String> bookingComboBox = new JComboBox<>(bookingOptions);
+        JPanel panel = new JPanel();
+        panel.add(new JLabel("Select Booking:"));
+        panel.add(bookingComboBox);
 
-            int bookingIndex = bookingComboBox.getSelectedIndex();
-            Booking selectedBooking = pendingBookings.get(bookingIndex);
+        int result = JOptionPane.showConfirmDialog(frame, panel, "Check-In Guest", JOptionPane.OK_CANCEL_OPTION);
+        if (result != JOptionPane.OK_OPTION) return;
 
-            List<Room> availableRooms = receptionist.viewAvailableRooms();
-            if (availableRooms.isEmpty()) {
-                JOptionPane.showMessageDialog(frame, "No available rooms for check-in.");
-                return;
-            }
+        int bookingIndex = bookingComboBox.getSelectedIndex();
+        Booking selectedBooking = arrivals.get(bookingIndex);
 
-            String[] roomOptions = availableRooms.stream()
-                    .map(Room::getRoomDetails)
-                    .toArray(String[]::new);
+        List<Room> availableRooms = desk.availableRooms;
+        if (availableRooms == null || availableRooms.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, "No available rooms for check-in.");
+            return;
+        }
 
-            JComboBox<String> roomComboBox = new JComboBox<>(roomOptions);
-            JPanel roomPanel = new JPanel();
-            roomPanel.add(new JLabel("Select Room:"));
-            roomPanel.add(roomComboBox);
+        String[] roomOptions = availableRooms.stream()
+                .map(Room::getRoomDetails)
+                .toArray(String[]::new);
 
-            int roomResult = JOptionPane.showConfirmDialog(frame, roomPanel, "Assign Room", JOptionPane.OK_CANCEL_OPTION);
-            if (roomResult != JOptionPane.OK_OPTION) return;
+        JComboBox<String> roomComboBox = new JComboBox<>(roomOptions);
+        JPanel roomPanel = new JPanel();
+        roomPanel.add(new JLabel("Select Room:"));
+        roomPanel.add(roomComboBox);
 
-            Room selectedRoom = availableRooms.get(roomComboBox.getSelectedIndex());
+        int roomResult = JOptionPane.showConfirmDialog(frame, roomPanel, "Assign Room", JOptionPane.OK_CANCEL_OPTION);
+        if (roomResult != JOptionPane.OK_OPTION) return;
 
-            // تحديث رقم الغرفة في الحجز
-            selectedBooking.setroomnumber(selectedRoom.getRoomNumber());
+        Room selectedRoom = availableRooms.get(roomComboBox.getSelectedIndex());
 
-            receptionist.checkInCustomer(selectedBooking);
-            JOptionPane.showMessageDialog(frame, "Check-in successful for Booking ID: " + selectedBooking.getBookingID());
+        // تحديث رقم الغرفة في الحجز
+        selectedBooking.setroomnumber(selectedRoom.getRoomNumber());
 
-        } catch (SQLException | ParseException ex) {
-            JOptionPane.showMessageDialog(frame, "Error checking in guest: " + ex.getMessage());
-        }
+        updateTask.runOnce(dbHandler, () -> {
+            desk.receptionist.checkInCustomer(selectedBooking);
+            return selectedBooking;
+        }, booking -> JOptionPane.showMessageDialog(frame, "Check-in successful for Booking ID: " + booking.getBookingID()),
+                error -> JOptionPane.showMessageDialog(frame, "Error checking in guest: " + error.getMessage()));
     }
 
     private void checkOutGuest() {
-        try {
-            Receptionist receptionist = new Receptionist(
-                    currentUser.getId(), currentUser.getName(), currentUser.getUserName(),
-                    currentUser.getPassword(), currentUser.getEmail(), 1,
-                    "Main Branch", "Day", dbHandler
-            );
-
-            List<Booking> bookings = receptionist.viewAllBookings();
-            List<Booking> confirmedBookings = bookings.stream()
-                    .filter(b -> b.getStatus() != null && b.getStatus().equals("CONFIRMED"))
-                    .toList();
-
-            if (confirmedBookings.isEmpty()) {
-                JOptionPane.showMessageDialog(frame, "No confirmed bookings available.");
-                return;
-            }
+        loadTask.run(dbHandler, () -> loadDesk(List.of("CONFIRMED"), false), this::showCheckOut,
+                error -> JOptionPane.showMessageDialog(frame, "Error checking out guest: " + error.getMessage()));
+    }
 
-            String[] bookingOptions = confirmedBookings.stream()
-                    .map(b -> {
-                        return "Booking ID: " + b.getBookingID() + " (Customer: " +
-                                dbHandler.getClass (b.getCustomerId()).getName() + ")";
-                    })
-                    .toArray(String[]::new);
+    private void showCheckOut(DeskSnapshot desk) {
+        List<Booking> confirmedBookings = desk.bookings;
 
-            JComboBox<String> bookingComboBox = new JComboBox<>(bookingOptions);
-            JPanel panel = new JPanel();
-            panel.add(new JLabel("Select Booking:"));
-            panel.add(bookingComboBox);
+        if (confirmedBookings.isEmpty()) {
+            JOptionPane.showMessageDialog(frame, "No confirmed bookings available.");
+            return;
+        }
 
-            int result = JOptionPane.showConfirmDialog(frame, panel, "Check-Out Guest", JOptionPane.OK_CANCEL_OPTION);
-            if (result != JOptionPane.OK_OPTION) return;
+        String[] bookingOptions = confirmedBookings.stream()
+                .map(b -> {
+                    return "Booking ID: " + b.getBookingID() + " (Customer: " +
+                            b.getCustomer().getName() + ")";
+                })
+                .toArray(String[]::new);
+
+        JComboBox<String> bookingComboBox = new JComboBox<>(bookingOptions);
+        JPanel panel = new JPanel();
+        panel.add(new JLabel("Select Booking:"));
+        panel.add(bookingComboBox);
+
+        int result = JOptionPane.showConfirmDialog(frame, panel, "Check-Out Guest", JOptionPane.OK_CANCEL_OPTION);
+        if (result != JOptionPane.OK_OPTION) return;
+
+        Booking selectedBooking = confirmedBookings.get(bookingComboBox.getSelectedIndex());
+        updateTask.runOnce(dbHandler, () -> {
+            desk.receptionist.checkOutCustomer(selectedBooking);
+            return selectedBooking;
+        }, booking -> JOptionPane.showMessageDialog(frame, "Check-out successful for Booking ID: " + booking.getBookingID()),
+                error -> JOptionPane.showMessageDialog(frame, "Error checking out guest: " + error.getMessage()));
+    }
 
-            Booking selectedBooking = confirmedBookings.get(bookingComboBox.getSelectedIndex());
-            receptionist.checkOutCustomer(selectedBooking);
-            JOptionPane.showMessageDialog(frame, "Check-out successful for Booking ID: " + selectedBooking.getBookingID());
+    private void viewBookings() {
+        loadTask.run(dbHandler, () -> loadDesk(null, false), this::showBookings,
+                error -> JOptionPane.showMessageDialog(frame, "Error loading bookings: " + error.getMessage()));
+    }
 
-        } catch (SQLException | ParseException ex) {
-            JOptionPane.showMessageDialog(frame, "Error checking out guest: " + ex.getMessage());
+    private void showBookings(DeskSnapshot desk) {
+        List<Booking> bookings = desk.bookings;
+        String[] columns = {"Booking ID", "Customer", "Room", "Check-In", "Check-Out", "Status", "Total Cost"};
+        Object[][] data = new Object[bookings.size()][7];
+        for (int i = 0; i < bookings.size(); i++) {
+            Booking b = bookings.get(i);
+            Customer customer = b.getCustomer();
+            Room room = b.getRoom();
+
+            data[i][0] = b.getBookingID();
+            data[i][1] = (customer != null) ? customer.getName() : "Unknown";
+            data[i][2] = (room != null) ? room.getRoomDetails() : "Unknown";
+            data[i][3] = b.getCheckInDate();
+            data[i][4] = b.getCheckOutDate();
+            data[i][5] = b.getStatus();
+            data[i][6] = b.getTotalCost();
         }
-    }
 
-    private void viewBookings() {
-        try {
-            Receptionist receptionist = new Receptionist(
-                    currentUser.getId(), currentUser.getName(), currentUser.getUserName(),
-                    currentUser.getPassword(), currentUser.getEmail(), 1,
-                    "Main Branch", "Day", dbHandler
-            );
-
-            List<Booking> bookings = receptionist.viewAllBookings();
-            String[] columns = {"Booking ID", "Customer", "Room", "Check-In", "Check-Out", "Status", "Total Cost"};
-            Object[][] data = new Object[bookings.size()][7];
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd");
-
-            for (int i = 0; i < bookings.size(); i++) {
-                Booking b = bookings.get(i);
-                Customer customer = dbHandler.getCustomerById(b.getCustomerId());
-                Room room = dbHandler.getRoomByNumber(b.getRoomNumber());
-
-                Object checkInObj = b.getCheckInDate();
-                Object checkOutObj = b.getCheckOutDate();
-
-                data[i][0] = b.getBookingID();
-                data[i][1] = (customer != null) ? customer.getName() : "Unknown";
-                data[i][2] = (room != null) ? room.getRoomDetails() : "Unknown";
-                data[i][3] = (checkInObj instanceof Date) ? sdf.format((Date) checkInObj) : "N/A";
-                data[i][4] = (checkOutObj instanceof Date) ? sdf.format((Date) checkOutObj) : "N/A";
-                data[i][5] = b.getStatus();
-                data[i][6] = b.getTotalCost();
-            }
 
+        JTable bookingsTable = new JTable(data, columns);
+        JOptionPane.showMessageDialog(frame, new JScrollPane(bookingsTable), "All Bookings", JOptionPane.INFORMATION_MESSAGE);
+    }
+
+    // Runs on a database worker thread.
+    private DeskSnapshot loadDesk(List<String> statuses, boolean withAvailableRooms) throws SQLException, ParseException {
+        List<Booking> bookings = receptionist.viewAllBookings();
+        if (statuses != null) {
+            bookings = bookings.stream()
+                    .filter(b -> b.getStatus() != null && statuses.contains(b.getStatus()))
+                    .toList();
+        }
+        List<Room> availableRooms = withAvailableRooms ? receptionist.viewAvailableRooms() : null;
+        return new DeskSnapshot(receptionist, bookings, availableRooms);
+    }
 
-            JTable bookingsTable = new JTable(data, columns);
-            JOptionPane.showMessageDialog(frame, new JScrollPane(bookingsTable), "All Bookings", JOptionPane.INFORMATION_MESSAGE);
+    private static class DeskSnapshot {
+        private final Receptionist receptionist;
+        private final List<Booking> bookings;
+        private final List<Room> availableRooms;
 
-        } catch (SQLException | ParseException ex) {
-            JOptionPane.showMessageDialog(frame, "Error loading bookings: " + ex.getMessage());
+        private DeskSnapshot(Receptionist receptionist, List<Booking> bookings, List<Room> availableRooms) {
+            this.receptionist = receptionist;
+            this.bookings = bookings;
+            this.availableRooms = availableRooms;
         }
     }
 
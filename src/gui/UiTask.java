@@ -0,0 +1,75 @@
+package gui;
+
+import system.DatabaseHandler;
+import system.DatabaseTask;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Runs one kind of database action for a window off the Event Dispatch Thread
+ * and delivers the outcome back on it. The owner shows a wait cursor while the
+ * action is in flight. {@link #run} drops the previous request when the user
+ * asks again, {@link #runOnce} ignores repeats until the first one finishes
+ * (use it for writes).
+ */
+public class UiTask {
+    private final Component owner;
+    private CompletableFuture<?> current;
+
+    public UiTask(Component owner) {
+        this.owner = owner;
+    }
+
+    public <T> void run(DatabaseHandler dbHandler, DatabaseTask<T> task, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        if (current != null) {
+            current.cancel(false);
+        }
+        start(dbHandler, task, onSuccess, onFailure);
+    }
+
+    public <T> void runOnce(DatabaseHandler dbHandler, DatabaseTask<T> task, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        if (current != null) {
+            return;
+        }
+        start(dbHandler, task, onSuccess, onFailure);
+    }
+
+    // For actions that bring their own executor, such as sign-in hashing.
+    public <T> void run(Supplier<CompletableFuture<T>> action, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        if (current != null) {
+            current.cancel(false);
+        }
+        start(action.get(), onSuccess, onFailure);
+    }
+
+    public boolean isRunning() {
+        return current != null;
+    }
+
+    private <T> void start(DatabaseHandler dbHandler, DatabaseTask<T> task, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        start(dbHandler.submit(task), onSuccess, onFailure);
+    }
+
+    private <T> void start(CompletableFuture<T> future, Consumer<T> onSuccess, Consumer<Throwable> onFailure) {
+        owner.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        current = future;
+        future.whenComplete((result, error) -> SwingUtilities.invokeLater(() -> {
+            if (future != current) {
+                return;
+            }
+            current = null;
+            owner.setCursor(Cursor.getDefaultCursor());
+            if (error == null) {
+                onSuccess.accept(result);
+            } else if (!(error instanceof CancellationException)) {
+                onFailure.accept(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+        }));
+    }
+}
@@ -1,11 +1,10 @@
 package payment;
 
 import system.DatabaseHandler;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import system.PaymentQueue;
 import java.sql.SQLException;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class CardPayment {
     private String cardNumber;
@@ -24,59 +23,28 @@ public class CardPayment {
         this.bookingId = bookingId;
     }
 
-    public boolean processPayment(double amount) {
-        if (!validateCardDetails()) {
+    public boolean processPayment(String idempotencyKey, double amount) {
+        try {
+            PaymentQueue.Result result = submitPayment(idempotencyKey, amount).join();
+            if (!result.isCompleted()) {
+                System.err.println(result.getMessage());
+            }
+            return result.isCompleted();
+        } catch (CompletionException e) {
+            System.err.println("Error processing payment: " + e.getCause().getMessage());
             return false;
         }
+    }
 
+    // Queues the payment; resubmitting with the same key never charges twice.
+    public CompletableFuture<PaymentQueue.Result> submitPayment(String idempotencyKey, double amount) {
+        if (!validateCardDetails()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Invalid card details"));
+        }
         try {
-            // Check if the booking exists and get its total cost
-            String query = "SELECT total_cost, status FROM bookings WHERE booking_id = ?";
-            try (PreparedStatement stmt = dbHandler.getConnection().prepareStatement(query)) {
-                stmt.setInt(1, bookingId);
-                try (ResultSet rs = stmt.executeQuery()) {
-                    if (rs.next()) {
-                        double bookingCost = rs.getDouble("total_cost");
-                        String status = rs.getString("status");
-
-                        if (!status.equals("PENDING")) {
-                            System.err.println("Booking is not in PENDING status");
-                            return false;
-                        }
-
-                        if (amount < bookingCost) {
-                            System.err.println("Insufficient payment amount");
-                            return false;
-                        }
-
-                        // Update booking status to CONFIRMED
-                        String updateQuery = "UPDATE bookings SET status = 'CONFIRMED', booking_date = ? WHERE booking_id = ?";
-                        try (PreparedStatement updateStmt = dbHandler.getConnection().prepareStatement(updateQuery)) {
-                            updateStmt.setString(1, new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
-                            updateStmt.setInt(2, bookingId);
-                            updateStmt.executeUpdate();
-                        }
-
-                        // Log the payment (assuming a payments table exists; adjust as needed)
-                        String paymentQuery = "INSERT INTO payments (booking_id, amount, payment_method, payment_date) VALUES (?, ?, ?, ?)";
-                        try (PreparedStatement paymentStmt = dbHandler.getConnection().prepareStatement(paymentQuery)) {
-                            paymentStmt.setInt(1, bookingId);
-                            paymentStmt.setDouble(2, amount);
-                            paymentStmt.setString(3, "CARD");
-                            paymentStmt.setString(4, new SimpleDateFormat("yyyy-MM-dd").format(new Date()));
-                            paymentStmt.executeUpdate();
-                        }
-
-                        return true;
-                    } else {
-                        System.err.println("Booking not found: " + bookingId);
-                        return false;
-                    }
-                }
-            }
+            return dbHandler.getPaymentQueue().submit(idempotencyKey, bookingId, amount, "CARD");
         } catch (SQLException e) {
-            System.err.println("Error processing payment: " + e.getMessage());
-            return false;
+            return CompletableFuture.failedFuture(e);
         }
     }
 
@@ -1,55 +1,64 @@
 package payment;
 
 import system.DatabaseHandler;
+import system.PaymentQueue;
 
-import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class CashPayment implements Payment {
-    private String cardNumber;
-    private String cardHolder;
-    private String expiryDate;
-    private String cvv;
     private DatabaseHandler dbHandler;
     private int bookingId;
+    private PaymentStatus status = PaymentStatus.PENDING;
 
-    public void CardPayment(String cardNumber, String cardHolder, String expiryDate, String cvv, DatabaseHandler dbHandler, int bookingId) {
-        this.cardNumber = cardNumber;
-        this.cardHolder = cardHolder;
-        this.expiryDate = expiryDate;
-        this.cvv = cvv;
+    public CashPayment(DatabaseHandler dbHandler, int bookingId) {
         this.dbHandler = dbHandler;
         this.bookingId = bookingId;
     }
 
     @Override
-    public boolean processPayment(double amount) {
-        if (!validateCardDetails()) {
+    public boolean processPayment(String idempotencyKey, double amount) {
+        try {
+            PaymentQueue.Result result = submitPayment(idempotencyKey, amount).join();
+            if (!result.isCompleted()) {
+                System.err.println(result.getMessage());
+            }
+            status = result.getStatus();
+            return result.isCompleted();
+        } catch (CompletionException e) {
+            System.err.println("Error processing cash payment: " + e.getCause().getMessage());
+            status = PaymentStatus.FAILED;
             return false;
         }
+    }
+
+    // Queues the payment; resubmitting with the same key never records it twice.
+    public CompletableFuture<PaymentQueue.Result> submitPayment(String idempotencyKey, double amount) {
+        if (amount <= 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Cash amount must be positive"));
+        }
         try {
-            PreparedStatement stmt = dbHandler.getConnection().prepareStatement(
-                    "UPDATE bookings SET status = 'CONFIRMED' WHERE booking_id = ?");
-            stmt.setInt(1, bookingId);
-            int rowsUpdated = stmt.executeUpdate();
-            return rowsUpdated > 0;
+            return dbHandler.getPaymentQueue().submit(idempotencyKey, bookingId, amount, "CASH");
         } catch (SQLException e) {
-            System.err.println("Error updating booking status: " + e.getMessage());
-            return false;
+            return CompletableFuture.failedFuture(e);
         }
     }
 
     @Override
     public boolean processRefund(double amount) {
-        return false;
+        try {
+            dbHandler.getPaymentLedger().refund(bookingId, amount, "Cash refund").join();
+            return true;
+        } catch (SQLException | CompletionException e) {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            System.err.println("Error processing refund: " + cause.getMessage());
+            return false;
+        }
     }
 
     @Override
     public PaymentStatus getPaymentStatus() {
-        return null;
-    }
-
-    private boolean validateCardDetails() {
-        return cardNumber.length() == 16 && cvv.length() == 3 && expiryDate.matches("\\d{2}/\\d{2}");
+        return status;
     }
 }
@@ -1,7 +1,8 @@
 package payment;
 
 public interface Payment {
-    boolean processPayment(double amount);
+    // Retrying with the same key replays the first attempt instead of paying again.
+    boolean processPayment(String idempotencyKey, double amount);
     boolean processRefund(double amount);
     PaymentStatus getPaymentStatus();
 }
\ No newline at end of file
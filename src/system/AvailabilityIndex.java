@@ -0,0 +1,186 @@
+package system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory per-room schedule of active bookings. Each room keeps its booked
+ * date ranges merged into sorted, non-overlapping intervals so an availability
+ * check is a single floor lookup instead of an overlap query on bookings.
+ * Adding a booking merges it into its neighbours, and removing one re-merges
+ * only the interval that held it.
+ */
+public class AvailabilityIndex {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("uuuu-M-d");
+
+    private final Map<Integer, RoomSchedule> schedules = new HashMap<>();
+    private final Map<Integer, BookedRange> bookings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public void load(Connection connection) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            schedules.clear();
+            bookings.clear();
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT booking_id, room_number, check_in_day, check_out_day FROM bookings " +
+                            "WHERE status NOT IN ('CANCELLED', 'COMPLETED')");
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int bookingId = rs.getInt("booking_id");
+                    long checkInDay = rs.getLong("check_in_day");
+                    boolean missing = rs.wasNull();
+                    long checkOutDay = rs.getLong("check_out_day");
+                    if (missing || rs.wasNull()) {
+                        System.err.println("Skipping booking " + bookingId + " with unreadable dates");
+                        continue;
+                    }
+                    addRange(bookingId, rs.getInt("room_number"), checkInDay, checkOutDay);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isAvailable(int roomNumber, long checkInDay, long checkOutDay) {
+        lock.readLock().lock();
+        try {
+            RoomSchedule schedule = schedules.get(roomNumber);
+            return schedule == null || !schedule.overlaps(checkInDay, checkOutDay);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void add(int bookingId, int roomNumber, long checkInDay, long checkOutDay, String status) {
+        if (!isActive(status)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeRange(bookingId);
+            addRange(bookingId, roomNumber, checkInDay, checkOutDay);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(int bookingId) {
+        lock.readLock().lock();
+        try {
+            return bookings.containsKey(bookingId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Only drops bookings that stop being active; one made active again is re-added through add.
+    public void updateStatus(int bookingId, String status) {
+        if (isActive(status)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            removeRange(bookingId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public static boolean isActive(String status) {
+        return status != null && !status.equals("CANCELLED") && !status.equals("COMPLETED");
+    }
+
+    public static long toEpochDay(String date) {
+        return LocalDate.parse(date.trim(), DATE_FORMAT).toEpochDay();
+    }
+
+    private void addRange(int bookingId, int roomNumber, long checkInDay, long checkOutDay) {
+        bookings.put(bookingId, new BookedRange(roomNumber, checkInDay, checkOutDay));
+        schedules.computeIfAbsent(roomNumber, k -> new RoomSchedule()).add(bookingId, checkInDay, checkOutDay);
+    }
+
+    private void removeRange(int bookingId) {
+        BookedRange range = bookings.remove(bookingId);
+        if (range == null) {
+            return;
+        }
+        RoomSchedule schedule = schedules.get(range.roomNumber);
+        schedule.remove(bookingId, range.checkInDay);
+        if (schedule.merged.isEmpty()) {
+            schedules.remove(range.roomNumber);
+        }
+    }
+
+    private static class BookedRange {
+        private final int roomNumber;
+        private final long checkInDay;
+        private final long checkOutDay;
+
+        private BookedRange(int roomNumber, long checkInDay, long checkOutDay) {
+            this.roomNumber = roomNumber;
+            this.checkInDay = checkInDay;
+            this.checkOutDay = checkOutDay;
+        }
+    }
+
+    private static class RoomSchedule {
+        // Check-in day to the bookings starting on it and their check-out days.
+        private final TreeMap<Long, Map<Integer, Long>> starts = new TreeMap<>();
+        private final TreeMap<Long, Long> merged = new TreeMap<>();
+
+        // Same inclusive overlap rule as the original SQL check.
+        private boolean overlaps(long checkInDay, long checkOutDay) {
+            Map.Entry<Long, Long> floor = merged.floorEntry(checkOutDay);
+            return floor != null && floor.getValue() >= checkInDay;
+        }
+
+        private void add(int bookingId, long checkInDay, long checkOutDay) {
+            starts.computeIfAbsent(checkInDay, k -> new HashMap<>()).put(bookingId, checkOutDay);
+            merge(checkInDay, checkOutDay);
+        }
+
+        // Every range in an interval starts inside it, so only that interval's ranges are merged again.
+        private void remove(int bookingId, long checkInDay) {
+            Map<Integer, Long> sameStart = starts.get(checkInDay);
+            sameStart.remove(bookingId);
+            if (sameStart.isEmpty()) {
+                starts.remove(checkInDay);
+            }
+            Map.Entry<Long, Long> interval = merged.floorEntry(checkInDay);
+            merged.remove(interval.getKey());
+            for (Map.Entry<Long, Map<Integer, Long>> entry
+                    : starts.subMap(interval.getKey(), true, interval.getValue(), true).entrySet()) {
+                for (long checkOutDay : entry.getValue().values()) {
+                    merge(entry.getKey(), checkOutDay);
+                }
+            }
+        }
+
+        // Intervals that meet on a day are joined, as the overlap rule treats that day as taken by both.
+        private void merge(long start, long end) {
+            Map.Entry<Long, Long> floor = merged.floorEntry(start);
+            if (floor != null && floor.getValue() >= start) {
+                start = floor.getKey();
+                end = Math.max(end, floor.getValue());
+            }
+            Iterator<Long> absorbed = merged.subMap(start, true, end, true).values().iterator();
+            while (absorbed.hasNext()) {
+                end = Math.max(end, absorbed.next());
+                absorbed.remove();
+            }
+            merged.put(start, end);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package system;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+/**
+ * Commits a new booking as one write transaction: the overlap check against
+ * the bookings table, the insert and the room flag update either all happen
+ * or none do. Because the check runs under BEGIN IMMEDIATE it also sees
+ * bookings made by other processes sharing the database file.
+ */
+public class BookingEngine {
+    private static final String OVERLAP_QUERY = """
+            SELECT 1 FROM bookings
+            WHERE room_number = ? AND status IN ('PENDING', 'CONFIRMED')
+            AND check_in_day <= ? AND check_out_day >= ?
+            LIMIT 1
+            """;
+    private static final String INSERT_QUERY = """
+            INSERT INTO bookings (customer_id, room_number, check_in_date, check_out_date, check_in_day, check_out_day,
+                                  status, total_cost, booking_date)
+            VALUES (?, ?, ?, ?, ?, ?, 'PENDING', ?, ?)
+            """;
+
+    private final DatabaseHandler dbHandler;
+
+    public BookingEngine(DatabaseHandler dbHandler) {
+        this.dbHandler = dbHandler;
+    }
+
+    // Returns the new booking id, or throws IllegalStateException if the room is taken for those dates.
+    public int book(int customerId, int roomNumber, LocalDate checkIn, LocalDate checkOut, double totalCost, LocalDate bookingDate) throws SQLException {
+        if (!checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date");
+        }
+        int checkInDay = (int) checkIn.toEpochDay();
+        int checkOutDay = (int) checkOut.toEpochDay();
+        return dbHandler.inWriteTransaction(() -> {
+            if (isBooked(roomNumber, checkInDay, checkOutDay)) {
+                throw new IllegalStateException("Room " + roomNumber + " is not available for the selected dates");
+            }
+            int bookingId = insert(customerId, roomNumber, checkIn, checkOut, totalCost, bookingDate);
+            try (PreparedStatement stmt = dbHandler.prepareStatement("UPDATE rooms SET is_available = 0 WHERE room_number = ?")) {
+                stmt.setInt(1, roomNumber);
+                stmt.executeUpdate();
+            }
+            dbHandler.bookingInserted(bookingId, roomNumber, checkInDay, checkOutDay, "PENDING");
+            dbHandler.roomChanged(roomNumber);
+            return bookingId;
+        });
+    }
+
+    private boolean isBooked(int roomNumber, int checkInDay, int checkOutDay) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(OVERLAP_QUERY)) {
+            stmt.setInt(1, roomNumber);
+            stmt.setInt(2, checkOutDay);
+            stmt.setInt(3, checkInDay);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private int insert(int customerId, int roomNumber, LocalDate checkIn, LocalDate checkOut, double totalCost, LocalDate bookingDate) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(INSERT_QUERY, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, customerId);
+            stmt.setInt(2, roomNumber);
+            stmt.setString(3, checkIn.toString());
+            stmt.setString(4, checkOut.toString());
+            stmt.setLong(5, checkIn.toEpochDay());
+            stmt.setLong(6, checkOut.toEpochDay());
+            stmt.setDouble(7, totalCost);
+            stmt.setString(8, bookingDate.toString());
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (keys.next()) {
+                    return keys.getInt(1);
+                }
+                throw new SQLException("Failed to retrieve generated booking ID");
+            }
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package system;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One writer connection plus a fixed set of query-only reader connections,
+ * all on a WAL-journaled database so readers never block the writer.
+ * A reader is checked out to the calling thread by {@link #acquireReader()}
+ * and goes back to the pool when its last hold is released, which read
+ * statements do on close. When every reader is taken the caller waits up to
+ * the busy timeout for one; reads never fall back to the writer, where they
+ * could see another thread's open transaction. Statements on the writer
+ * execute under {@link #getWriteLock()}, which write transactions hold for
+ * their whole span so no other thread's statement lands inside them.
+ * A shared-cache in-memory database has no WAL; there readers skip table
+ * locks instead, so they may see a write transaction before it commits.
+ */
+public class ConnectionPool {
+    private final String url;
+    private final int readerCount;
+    private final int busyTimeoutMs;
+    private final int statementCacheSize;
+    private Connection writer;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final List<Connection> readers = new ArrayList<>();
+    private final BlockingQueue<Connection> idleReaders;
+    private final ThreadLocal<Checkout> threadReader = new ThreadLocal<>();
+    // Read by any thread while open() and close() fill and clear it; connections compare by identity.
+    private final Map<Connection, StatementCache> statementCaches = new ConcurrentHashMap<>();
+    private final StatementMetrics metrics;
+    private final SlowQueryLog slowQueryLog;
+
+    public ConnectionPool(String url, int readerCount, int busyTimeoutMs, int statementCacheSize) {
+        this(url, readerCount, busyTimeoutMs, statementCacheSize, null, null);
+    }
+
+    // Statements from every connection record into the given metrics and slow query log, where not null.
+    public ConnectionPool(String url, int readerCount, int busyTimeoutMs, int statementCacheSize, StatementMetrics metrics,
+                          SlowQueryLog slowQueryLog) {
+        this.url = url;
+        this.metrics = metrics;
+        this.slowQueryLog = slowQueryLog;
+        this.readerCount = Math.max(1, readerCount);
+        this.busyTimeoutMs = busyTimeoutMs;
+        this.statementCacheSize = statementCacheSize;
+        this.idleReaders = new ArrayBlockingQueue<>(this.readerCount);
+    }
+
+    // Either opens every connection or, if one fails, closes the ones already open and rethrows.
+    public synchronized void open() throws SQLException {
+        try {
+            writer = DriverManager.getConnection(url);
+            writer.setAutoCommit(true);
+            try (Statement stmt = writer.createStatement()) {
+                stmt.execute("PRAGMA journal_mode=WAL");
+                // FULL syncs the WAL on every commit, so a committed ledger entry survives a power loss.
+                stmt.execute("PRAGMA synchronous=FULL");
+                stmt.execute("PRAGMA busy_timeout=" + busyTimeoutMs);
+            }
+            statementCaches.put(writer, new StatementCache(writer, statementCacheSize, writeLock, metrics, slowQueryLog));
+            for (int i = 0; i < readerCount; i++) {
+                Connection reader = DriverManager.getConnection(url);
+                readers.add(reader);
+                reader.setAutoCommit(true);
+                try (Statement stmt = reader.createStatement()) {
+                    stmt.execute("PRAGMA busy_timeout=" + busyTimeoutMs);
+                    stmt.execute("PRAGMA query_only=1");
+                    if (DatabaseConfig.isSharedMemory(url)) {
+                        stmt.execute("PRAGMA read_uncommitted=1");
+                    }
+                }
+                statementCaches.put(reader, new StatementCache(reader, statementCacheSize, null, metrics, slowQueryLog));
+                idleReaders.add(reader);
+            }
+        } catch (SQLException | RuntimeException e) {
+            try {
+                close();
+            } catch (SQLException closeFailure) {
+                e.addSuppressed(closeFailure);
+            }
+            writer = null;
+            throw e;
+        }
+    }
+
+    public boolean isOpen() throws SQLException {
+        return writer != null && !writer.isClosed();
+    }
+
+    public Connection getWriter() {
+        return writer;
+    }
+
+    public ReentrantLock getWriteLock() {
+        return writeLock;
+    }
+
+    // The thread's reader, checked out on the first hold; every call must be matched by releaseReader().
+    public Connection acquireReader() throws SQLException {
+        Checkout checkout = threadReader.get();
+        if (checkout != null) {
+            checkout.holds++;
+            return checkout.reader;
+        }
+        Connection reader;
+        try {
+            reader = idleReaders.poll(busyTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a reader connection", e);
+        }
+        if (reader == null) {
+            throw new SQLException("No reader connection free after " + busyTimeoutMs + " ms");
+        }
+        threadReader.set(new Checkout(reader));
+        return reader;
+    }
+
+    public StatementCache statementCache(Connection connection) {
+        return statementCaches.get(connection);
+    }
+
+    public long getStatementCacheHits() {
+        return statementCaches.values().stream().mapToLong(StatementCache::getHits).sum();
+    }
+
+    public long getStatementCacheMisses() {
+        return statementCaches.values().stream().mapToLong(StatementCache::getMisses).sum();
+    }
+
+    // Drops one hold; the reader goes back to the pool with the last one.
+    public void releaseReader() {
+        Checkout checkout = threadReader.get();
+        if (checkout != null && --checkout.holds == 0) {
+            threadReader.remove();
+            idleReaders.offer(checkout.reader);
+        }
+    }
+
+    // Gives the thread's reader back whatever holds are left, e.g. when a background task ends.
+    public void releaseAllReaders() {
+        Checkout checkout = threadReader.get();
+        if (checkout != null) {
+            threadReader.remove();
+            idleReaders.offer(checkout.reader);
+        }
+    }
+
+    private static final class Checkout {
+        private final Connection reader;
+        private int holds = 1;
+
+        private Checkout(Connection reader) {
+            this.reader = reader;
+        }
+    }
+
+    public synchronized void close() throws SQLException {
+        SQLException failure = null;
+        for (StatementCache cache : statementCaches.values()) {
+            cache.close();
+        }
+        statementCaches.clear();
+        for (Connection reader : readers) {
+            try {
+                reader.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        readers.clear();
+        idleReaders.clear();
+        if (writer != null) {
+            writer.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package system;
+
+import core.User;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Checks sign-ins against bcrypt password hashes on a small, bounded pool,
+ * so hashing never runs on the Event Dispatch Thread and a burst of logins
+ * cannot take every core. When the pool and its queue are full, a sign-in
+ * fails fast instead of waiting. A row still holding a plaintext password,
+ * or a hash weaker than the configured cost, is rehashed on its next
+ * successful sign-in.
+ */
+public class CredentialService {
+    private static final int COST = Integer.getInteger("hotel.auth.bcryptCost", 10);
+    private static final int THREADS = Integer.getInteger("hotel.auth.hashThreads",
+            Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    private static final int QUEUE_SIZE = Integer.getInteger("hotel.auth.queueSize", 32);
+    private static final Pattern BCRYPT_HASH = Pattern.compile("^\\$2[aby]\\$(\\d\\d)\\$[./A-Za-z0-9]{53}$");
+
+    private static final String LOGIN_FAILED = "Incorrect username or password.";
+
+    // Checked against for unknown usernames so they take as long as a wrong password; made on first use.
+    private static class DummyHash {
+        private static final String VALUE = hash("");
+    }
+
+    public static class LoginFailedException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public LoginFailedException(String message) {
+            super(message);
+        }
+    }
+
+    private final DatabaseHandler dbHandler;
+    private final ThreadPoolExecutor hashers;
+    private final AtomicLong verified = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong rehashed = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+    private final AtomicLong totalHashNanos = new AtomicLong();
+
+    public CredentialService(DatabaseHandler dbHandler) {
+        this.dbHandler = dbHandler;
+        AtomicInteger counter = new AtomicInteger();
+        this.hashers = new ThreadPoolExecutor(THREADS, THREADS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+            Thread thread = new Thread(r, "credential-hasher-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        hashers.allowCoreThreadTimeOut(true);
+    }
+
+    public static boolean isHash(String stored) {
+        return stored != null && BCRYPT_HASH.matcher(stored).matches();
+    }
+
+    // Hashes on the calling thread; for passwords set outside the login path.
+    public static String hash(String password) {
+        return BCrypt.hashpw(password, BCrypt.gensalt(COST));
+    }
+
+    // Completes with the user's role object, or LoginFailedException for an unknown user or a wrong password.
+    public CompletableFuture<User> authenticate(String username, String password) {
+        long submitted = System.nanoTime();
+        CompletableFuture<User> future = new CompletableFuture<>();
+        try {
+            hashers.execute(() -> {
+                try {
+                    future.complete(verify(username, password));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                } finally {
+                    long latency = System.nanoTime() - submitted;
+                    totalLatencyNanos.addAndGet(latency);
+                    maxLatencyNanos.accumulateAndGet(latency, Math::max);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            future.completeExceptionally(new LoginFailedException("Too many sign-ins in progress, please try again."));
+        }
+        return future;
+    }
+
+    public long getVerifiedCount() {
+        return verified.get();
+    }
+
+    public long getFailedCount() {
+        return failed.get();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public long getRehashedCount() {
+        return rehashed.get();
+    }
+
+    // From submission to result, queueing included.
+    public double getAverageLatencyMillis() {
+        long attempts = verified.get() + failed.get();
+        return attempts == 0 ? 0 : totalLatencyNanos.get() / 1e6 / attempts;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1e6;
+    }
+
+    // Time spent inside bcrypt per attempt.
+    public double getAverageHashMillis() {
+        long attempts = verified.get() + failed.get();
+        return attempts == 0 ? 0 : totalHashNanos.get() / 1e6 / attempts;
+    }
+
+    public void shutdown() {
+        hashers.shutdownNow();
+        System.out.printf("Credential service: %d sign-ins, %d failed, %d rejected, %d rehashed (avg %.1f ms, bcrypt %.1f ms, max %.1f ms)%n",
+                getVerifiedCount(), getFailedCount(), getRejectedCount(), getRehashedCount(),
+                getAverageLatencyMillis(), getAverageHashMillis(), getMaxLatencyMillis());
+    }
+
+    private User verify(String username, String password) throws SQLException, LoginFailedException {
+        User user = null;
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement("SELECT * FROM users WHERE username = ?")) {
+            stmt.setString(1, username);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    if (rs.getString("role") == null || rs.getString("role").trim().isEmpty()) {
+                        failed.incrementAndGet();
+                        throw new LoginFailedException("User role is missing in database.");
+                    }
+                    user = User.fromRow(rs, dbHandler);
+                }
+            }
+        } finally {
+            // Runs on a hasher thread that may idle out, so the reader must not stay checked out to it.
+            dbHandler.releaseReadConnection();
+        }
+        String stored = user == null ? DummyHash.VALUE : user.getPassword();
+
+        long hashStart = System.nanoTime();
+        boolean hashed = isHash(stored);
+        boolean matches = hashed
+                ? checkHash(password, stored)
+                : stored != null && MessageDigest.isEqual(stored.getBytes(StandardCharsets.UTF_8),
+                password.getBytes(StandardCharsets.UTF_8));
+        totalHashNanos.addAndGet(System.nanoTime() - hashStart);
+        if (user == null || !matches) {
+            failed.incrementAndGet();
+            throw new LoginFailedException(LOGIN_FAILED);
+        }
+        verified.incrementAndGet();
+
+        if (!hashed || cost(stored) < COST) {
+            String upgraded = hash(password);
+            if (replaceHash(user.getId(), stored, upgraded)) {
+                rehashed.incrementAndGet();
+                user.setStoredPassword(upgraded);
+            }
+        }
+        return user;
+    }
+
+    // Only replaces the value that was checked, so a password changed meanwhile is left alone.
+    private boolean replaceHash(int id, String expected, String upgraded) throws SQLException {
+        return dbHandler.inWriteTransaction(() -> {
+            try (PreparedStatement stmt = dbHandler.prepareStatement(
+                    "UPDATE users SET password = ? WHERE id = ? AND password = ?")) {
+                stmt.setString(1, upgraded);
+                stmt.setInt(2, id);
+                stmt.setString(3, expected);
+                return stmt.executeUpdate() > 0;
+            }
+        });
+    }
+
+    // jBCrypt only reads $2a$; $2b$ and $2y$ hashes are computed the same way for any password it accepts.
+    private static boolean checkHash(String password, String hash) {
+        return BCrypt.checkpw(password, hash.startsWith("$2a$") ? hash : "$2a$" + hash.substring(4));
+    }
+
+    private static int cost(String hash) {
+        return Integer.parseInt(hash.substring(4, 6));
+    }
+}
@@ -0,0 +1,122 @@
+package system;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+
+/**
+ * Where the database lives and how it is tuned. Every hotel.db.* setting is
+ * looked up as a system property first, then as an environment variable
+ * (hotel.db.path becomes HOTEL_DB_PATH), then in the config file, which is
+ * hotel.properties in the working directory unless -Dhotel.config or
+ * HOTEL_CONFIG names another one.
+ *
+ * hotel.db.mode picks the storage: file (the default) opens hotel.db.path,
+ * or hotel.db.url if set; memory opens an empty shared-cache in-memory
+ * database; snapshot loads hotel.db.path into memory at connect and writes
+ * it back every hotel.db.checkpointSeconds and on close.
+ */
+public class DatabaseConfig {
+    public enum Mode {
+        FILE, MEMORY, SNAPSHOT
+    }
+
+    private static final String DEFAULT_PATH = "D:/hotelmanagement/hotel.db";
+    private static final String DEFAULT_CONFIG_FILE = "hotel.properties";
+
+    private final Properties file;
+
+    public DatabaseConfig(Properties file) {
+        this.file = file;
+    }
+
+    // Reads the config file if there is one; a missing default file is not an error.
+    public static DatabaseConfig load() {
+        String configured = System.getProperty("hotel.config", System.getenv("HOTEL_CONFIG"));
+        Path path = Path.of(configured != null ? configured : DEFAULT_CONFIG_FILE);
+        Properties properties = new Properties();
+        if (Files.isRegularFile(path)) {
+            try (Reader in = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                properties.load(in);
+            } catch (IOException e) {
+                System.err.println("Failed to read " + path + ": " + e.getMessage());
+            }
+        } else if (configured != null) {
+            System.err.println("Config file not found: " + path);
+        }
+        return new DatabaseConfig(properties);
+    }
+
+    public String get(String key, String otherwise) {
+        String value = System.getProperty(key);
+        if (value == null) {
+            value = System.getenv(key.toUpperCase(Locale.ROOT).replace('.', '_'));
+        }
+        if (value == null) {
+            value = file.getProperty(key);
+        }
+        return value == null || value.isBlank() ? otherwise : value.trim();
+    }
+
+    public int getInt(String key, int otherwise) {
+        String value = get(key, null);
+        try {
+            return value == null ? otherwise : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring " + key + "=" + value + ", not a number");
+            return otherwise;
+        }
+    }
+
+    public long getLong(String key, long otherwise) {
+        String value = get(key, null);
+        try {
+            return value == null ? otherwise : Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring " + key + "=" + value + ", not a number");
+            return otherwise;
+        }
+    }
+
+    public boolean getBoolean(String key, boolean otherwise) {
+        String value = get(key, null);
+        return value == null ? otherwise : Boolean.parseBoolean(value);
+    }
+
+    public Mode getMode() {
+        String mode = get("hotel.db.mode", "file");
+        try {
+            return Mode.valueOf(mode.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown hotel.db.mode '" + mode + "', expected file, memory or snapshot");
+        }
+    }
+
+    // The database file: the one opened in file mode, or loaded and checkpointed in snapshot mode.
+    public Path getPath() {
+        return Path.of(get("hotel.db.path", DEFAULT_PATH));
+    }
+
+    public String getUrl() {
+        switch (getMode()) {
+            case MEMORY:
+            case SNAPSHOT:
+                return memoryUrl(get("hotel.db.memoryName", "hotel"));
+            default:
+                return get("hotel.db.url", "jdbc:sqlite:" + getPath().toAbsolutePath());
+        }
+    }
+
+    // Every connection opened with this URL in the same JVM sees the same database, until the last one closes.
+    public static String memoryUrl(String name) {
+        return "jdbc:sqlite:file:" + name + "?mode=memory&cache=shared";
+    }
+
+    public static boolean isSharedMemory(String url) {
+        return url.contains("mode=memory") && url.contains("cache=shared");
+    }
+}
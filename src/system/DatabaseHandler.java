@@ -3,38 +3,474 @@
 import core.Customer;
 import core.Room;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class DatabaseHandler {
-    private Connection connection;
-    private static final String DB_URL = "jdbc:sqlite:D:/hotelmanagement/hotel.db";
+    private static final int ASYNC_QUEUE_SIZE = 256;
+    private static final int SQLITE_BUSY = 5;
+    // Published only once connect() has finished, so a pool seen here is migrated and has its caches loaded.
+    private volatile ConnectionPool pool;
+    private final String dbUrl;
+    private final int readerCount;
+    private final int busyTimeoutMs;
+    private final int statementCacheSize;
+    private final int writeRetries;
+    private final boolean statementMetricsEnabled;
+    // If set, the statement metrics are written to this file when the database is closed.
+    private final String statementMetricsFile;
+    // Statements slower than this are logged with their plan; a negative value turns the log off.
+    private final long slowQueryMs;
+    private final String slowQueryFile;
+    private final long slowQueryMaxBytes;
+    // Set in snapshot mode: the file loaded into memory at connect and checkpointed back.
+    private final Path snapshotFile;
+    private final long checkpointSeconds;
+    private final AvailabilityIndex availabilityIndex = new AvailabilityIndex();
+    private final RoomCatalog roomCatalog = new RoomCatalog();
+    private final OccupancyCalendar occupancyCalendar = new OccupancyCalendar();
+    private final ThreadPoolExecutor asyncExecutor;
+    private final ThreadLocal<List<Runnable>> commitActions = new ThreadLocal<>();
+    private final AtomicLong busyRetries = new AtomicLong();
+    private PaymentQueue paymentQueue;
+    private PaymentLedger paymentLedger;
+    private CredentialService credentialService;
+    private StatementMetrics statementMetrics;
+    private SlowQueryLog slowQueryLog;
+    private DatabaseSnapshot snapshot;
 
-    public void connect() throws SQLException {
-        if (connection == null || connection.isClosed()) {
-            connection = DriverManager.getConnection(DB_URL);
-            connection.setAutoCommit(true);
-            System.out.println("Connected to database: " + DB_URL);
+    public DatabaseHandler() {
+        this(DatabaseConfig.load());
+    }
+
+    public DatabaseHandler(DatabaseConfig config) {
+        this(config, config.getUrl(), config.getMode() == DatabaseConfig.Mode.SNAPSHOT ? config.getPath() : null);
+    }
+
+    // Opens the given URL; the other settings still come from the configuration.
+    public DatabaseHandler(String dbUrl) {
+        this(DatabaseConfig.load(), dbUrl, null);
+    }
+
+    private DatabaseHandler(DatabaseConfig config, String dbUrl, Path snapshotFile) {
+        this.dbUrl = dbUrl;
+        this.snapshotFile = snapshotFile;
+        readerCount = config.getInt("hotel.db.readers", 4);
+        busyTimeoutMs = config.getInt("hotel.db.busyTimeoutMs", 5000);
+        statementCacheSize = config.getInt("hotel.db.statementCacheSize", 64);
+        writeRetries = config.getInt("hotel.db.writeRetries", 5);
+        statementMetricsEnabled = config.getBoolean("hotel.db.statementMetrics", true);
+        statementMetricsFile = config.get("hotel.db.statementMetricsFile", null);
+        slowQueryMs = config.getLong("hotel.db.slowQueryMs", 200);
+        slowQueryFile = config.get("hotel.db.slowQueryLog", "slow-queries.log");
+        slowQueryMaxBytes = config.getLong("hotel.db.slowQueryLogMaxBytes", 5L * 1024 * 1024);
+        checkpointSeconds = config.getLong("hotel.db.checkpointSeconds", 60);
+        asyncExecutor = createAsyncExecutor(config.getInt("hotel.db.asyncThreads", 3));
+    }
+
+    public synchronized void connect() throws SQLException {
+        if (pool == null || !pool.isOpen()) {
+            StartupTimeline.Phase phase = StartupTimeline.start("DB connect");
+            if (statementMetricsEnabled && statementMetrics == null) {
+                statementMetrics = new StatementMetrics();
+            }
+            if (slowQueryMs >= 0 && slowQueryLog == null) {
+                slowQueryLog = new SlowQueryLog(slowQueryMs, Path.of(slowQueryFile), slowQueryMaxBytes);
+            }
+            ConnectionPool opening = new ConnectionPool(dbUrl, readerCount, busyTimeoutMs, statementCacheSize, statementMetrics,
+                    slowQueryLog);
+            opening.open();
+            phase.end();
+            System.out.println("Connected to database: " + dbUrl + " ("
+                    + (DatabaseConfig.isSharedMemory(dbUrl) ? "in memory" : "WAL") + ", " + readerCount + " readers)");
+            DatabaseSnapshot restored = null;
+            try {
+                if (snapshotFile != null) {
+                    phase = StartupTimeline.start("snapshot restore");
+                    restored = new DatabaseSnapshot(snapshotFile, checkpointSeconds, opening.getWriter(), opening.getWriteLock());
+                    restored.restore();
+                    phase.end();
+                    System.out.println("Loaded snapshot " + snapshotFile + ", checkpointing every " + checkpointSeconds + " s");
+                }
+                phase = StartupTimeline.start("schema check");
+                SchemaMigrator migrator = new SchemaMigrator();
+                migrator.migrate(opening.getWriter());
+                migrator.logQueryPlans(opening.getWriter());
+                phase.end();
+                phase = StartupTimeline.start("availability caches");
+                Connection reader = opening.acquireReader();
+                try {
+                    availabilityIndex.load(reader);
+                    roomCatalog.load(reader, this);
+                    occupancyCalendar.load(reader);
+                } finally {
+                    opening.releaseReader();
+                }
+                phase.end();
+            } catch (SQLException | RuntimeException e) {
+                try {
+                    opening.close();
+                } catch (SQLException closeFailure) {
+                    e.addSuppressed(closeFailure);
+                }
+                throw e;
+            }
+            snapshot = restored;
+            pool = opening;
+            if (snapshot != null) {
+                snapshot.start();
+            }
         }
     }
 
-    public Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
+    // Connects on first use. Other threads wait on connect() until the pool is published.
+    private ConnectionPool openPool() throws SQLException {
+        ConnectionPool current = pool;
+        if (current == null || !current.isOpen()) {
             connect();
+            current = pool;
+        }
+        return current;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return openPool().getWriter();
+    }
+
+    // Holds a reader for the calling thread until releaseReadConnection().
+    public Connection getReadConnection() throws SQLException {
+        return openPool().acquireReader();
+    }
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        ConnectionPool current = openPool();
+        return current.statementCache(current.getWriter()).prepare(sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        ConnectionPool current = openPool();
+        return current.statementCache(current.getWriter()).prepare(sql, autoGeneratedKeys);
+    }
+
+    // The reader is held while the statement is open and given back when it is closed.
+    public PreparedStatement prepareReadStatement(String sql) throws SQLException {
+        ConnectionPool readerPool = openPool();
+        Connection connection = readerPool.acquireReader();
+        try {
+            return readerPool.statementCache(connection).prepare(sql, readerPool::releaseReader);
+        } catch (SQLException | RuntimeException e) {
+            readerPool.releaseReader();
+            throw e;
+        }
+    }
+
+    public long getStatementCacheHits() {
+        ConnectionPool current = pool;
+        return current == null ? 0 : current.getStatementCacheHits();
+    }
+
+    public long getStatementCacheMisses() {
+        ConnectionPool current = pool;
+        return current == null ? 0 : current.getStatementCacheMisses();
+    }
+
+    // Gives back any reader the calling thread still holds.
+    public void releaseReadConnection() {
+        ConnectionPool current = pool;
+        if (current != null) {
+            current.releaseAllReaders();
+        }
+    }
+
+    // Runs database work on the bounded background pool; each task gives its reader back when done.
+    public <T> CompletableFuture<T> submit(DatabaseTask<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            asyncExecutor.execute(() -> {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    future.complete(task.run());
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                } finally {
+                    releaseReadConnection();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Runs work as one BEGIN IMMEDIATE transaction on the writer, holding the
+     * write lock throughout. The whole transaction is retried with backoff when
+     * SQLite reports SQLITE_BUSY, so the work must only touch the database;
+     * cache updates made through the hooks below are applied after commit.
+     * Nested calls join the transaction already open on this thread.
+     */
+    public <T> T inWriteTransaction(WriteTransaction<T> work) throws SQLException {
+        ConnectionPool current = openPool();
+        Connection writer = current.getWriter();
+        ReentrantLock lock = current.getWriteLock();
+        lock.lock();
+        try {
+            if (commitActions.get() != null) {
+                return work.run();
+            }
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    return runTransaction(writer, work);
+                } catch (SQLException e) {
+                    if (!isBusy(e) || attempt >= writeRetries) {
+                        throw e;
+                    }
+                    busyRetries.incrementAndGet();
+                    backOff(attempt);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private <T> T runTransaction(Connection writer, WriteTransaction<T> work) throws SQLException {
+        List<Runnable> actions = new ArrayList<>();
+        commitActions.set(actions);
+        boolean committed = false;
+        try (Statement stmt = writer.createStatement()) {
+            stmt.execute("BEGIN IMMEDIATE");
+            try {
+                T result = work.run();
+                stmt.execute("COMMIT");
+                committed = true;
+                return result;
+            } finally {
+                if (!committed) {
+                    rollbackQuietly(stmt);
+                }
+            }
+        } finally {
+            commitActions.remove();
+            if (committed) {
+                actions.forEach(Runnable::run);
+            }
+        }
+    }
+
+    private static void rollbackQuietly(Statement stmt) {
+        try {
+            stmt.execute("ROLLBACK");
+        } catch (SQLException e) {
+            System.err.println("Rollback failed: " + e.getMessage());
         }
-        return connection;
     }
 
-    public void closeConnection() {
+    // Write transactions retried because another connection held the database.
+    public long getBusyRetryCount() {
+        return busyRetries.get();
+    }
+
+    public static boolean isBusy(SQLException e) {
+        String message = e.getMessage();
+        return e.getErrorCode() == SQLITE_BUSY
+                || (message != null && (message.contains("SQLITE_BUSY") || message.contains("database is locked")));
+    }
+
+    private static void backOff(int attempt) throws SQLException {
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+            Thread.sleep(ThreadLocalRandom.current().nextLong(10L << attempt));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying a busy write", e);
+        }
+    }
+
+    // Applies an in-memory update now, or after commit when a write transaction is open on this thread.
+    private void afterCommit(Runnable action) {
+        List<Runnable> actions = commitActions.get();
+        if (actions == null) {
+            action.run();
+        } else {
+            actions.add(action);
+        }
+    }
+
+    public AvailabilityIndex getAvailabilityIndex() throws SQLException {
+        getConnection();
+        return availabilityIndex;
+    }
+
+    public void bookingInserted(int bookingId, int roomNumber, long checkInDay, long checkOutDay, String status) {
+        afterCommit(() -> {
+            availabilityIndex.add(bookingId, roomNumber, checkInDay, checkOutDay, status);
+            occupancyCalendar.add(bookingId, roomNumber, checkInDay, checkOutDay, status);
+        });
+    }
+
+    // A booking made active again has left the caches, so its stay is read back and re-added.
+    public void bookingStatusChanged(int bookingId, String status) throws SQLException {
+        if (AvailabilityIndex.isActive(status) && !availabilityIndex.contains(bookingId)) {
+            try (PreparedStatement stmt = prepareStatement(
+                    "SELECT room_number, check_in_day, check_out_day FROM bookings WHERE booking_id = ?")) {
+                stmt.setInt(1, bookingId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        bookingInserted(bookingId, rs.getInt(1), rs.getLong(2), rs.getLong(3), status);
+                        return;
+                    }
+                }
+            }
+        }
+        afterCommit(() -> {
+            availabilityIndex.updateStatus(bookingId, status);
+            occupancyCalendar.updateStatus(bookingId, status);
+        });
+    }
+
+    // Reloads the calendar when the month has turned, so its window moves forward with the date.
+    public OccupancyCalendar getOccupancyCalendar() throws SQLException {
+        ConnectionPool current = openPool();
+        if (occupancyCalendar.isStale()) {
+            Connection reader = current.acquireReader();
+            try {
+                occupancyCalendar.load(reader);
+            } finally {
+                current.releaseReader();
+            }
+        }
+        return occupancyCalendar;
+    }
+
+    public RoomCatalog getRoomCatalog() throws SQLException {
+        getConnection();
+        return roomCatalog;
+    }
+
+    public void roomSaved(Room room) {
+        Room saved = room.copy();
+        afterCommit(() -> roomCatalog.put(saved));
+    }
+
+    public void roomDeleted(int roomNumber) {
+        afterCommit(() -> roomCatalog.remove(roomNumber));
+    }
+
+    // For writes to rooms made with plain SQL rather than through a Room.
+    public void roomChanged(int roomNumber) throws SQLException {
+        ConnectionPool current = openPool();
+        Connection writer = current.getWriter();
+        afterCommit(() -> {
+            current.getWriteLock().lock();
+            try {
+                roomCatalog.reload(writer, roomNumber, this);
+            } catch (SQLException e) {
+                System.err.println("Failed to reload room " + roomNumber + ": " + e.getMessage());
+            } finally {
+                current.getWriteLock().unlock();
+            }
+        });
+    }
+
+    public synchronized PaymentQueue getPaymentQueue() throws SQLException {
+        if (paymentQueue == null) {
+            paymentQueue = new PaymentQueue(this, getPaymentLedger());
+        }
+        return paymentQueue;
+    }
+
+    public synchronized PaymentLedger getPaymentLedger() throws SQLException {
+        if (paymentLedger == null) {
+            getConnection();
+            PaymentLedger ledger = new PaymentLedger(this);
+            ledger.start();
+            paymentLedger = ledger;
+        }
+        return paymentLedger;
+    }
+
+    // Null if statement metrics are turned off with -Dhotel.db.statementMetrics=false.
+    public synchronized StatementMetrics getStatementMetrics() {
+        return statementMetrics;
+    }
+
+    public synchronized CredentialService getCredentialService() {
+        if (credentialService == null) {
+            credentialService = new CredentialService(this);
+        }
+        return credentialService;
+    }
+
+    public synchronized void closeConnection() {
+        if (credentialService != null) {
+            credentialService.shutdown();
+            credentialService = null;
+        }
+        if (paymentQueue != null) {
+            paymentQueue.shutdown();
+            paymentQueue = null;
+        }
+        if (paymentLedger != null) {
+            paymentLedger.shutdown();
+            paymentLedger = null;
+        }
+        if (snapshot != null) {
+            snapshot.shutdown();
+            snapshot = null;
+        }
+        try {
+            if (pool != null && pool.isOpen()) {
+                pool.close();
                 System.out.println("Database connection closed");
             }
         } catch (SQLException e) {
             System.err.println("Error closing database connection: " + e.getMessage());
         }
+        if (statementMetrics != null) {
+            if (statementMetricsFile != null) {
+                try {
+                    System.out.println("Statement metrics written to " + statementMetrics.dump(Path.of(statementMetricsFile)));
+                } catch (IOException e) {
+                    System.err.println("Failed to write statement metrics: " + e.getMessage());
+                }
+            }
+            statementMetrics.unregister();
+            statementMetrics = null;
+        }
+        if (slowQueryLog != null) {
+            slowQueryLog.shutdown();
+            slowQueryLog = null;
+        }
+    }
+
+    private static ThreadPoolExecutor createAsyncExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(ASYNC_QUEUE_SIZE), r -> {
+            Thread thread = new Thread(r, "db-async-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
     }
 
     public Class<Object> getClass(int customerId) {
@@ -45,8 +481,8 @@ public class DatabaseHandler {
         return null;
     }
 
-    public Room getRoomByNumber(int roomNumber) {
-        return null;
+    public Room getRoomByNumber(int roomNumber) throws SQLException {
+        return getRoomCatalog().get(roomNumber);
     }
 
     public Customer getCustomerById(int customerId) {
@@ -0,0 +1,110 @@
+package system;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Keeps an in-memory database backed by a file. The file is loaded into
+ * memory once at connect, and the memory copy is written back on a timer
+ * and at shutdown. Each checkpoint goes to a temporary file under the write
+ * lock, so it captures a committed state, and then replaces the file in one
+ * move, so a crash mid-checkpoint leaves the previous snapshot intact. Writes
+ * made since the last checkpoint are lost if the process dies.
+ */
+public class DatabaseSnapshot {
+    private final Path file;
+    private final long intervalSeconds;
+    private final Connection writer;
+    private final ReentrantLock writeLock;
+    private ScheduledExecutorService timer;
+    private volatile long checkpoints;
+
+    public DatabaseSnapshot(Path file, long intervalSeconds, Connection writer, ReentrantLock writeLock) {
+        this.file = file;
+        this.intervalSeconds = intervalSeconds;
+        this.writer = writer;
+        this.writeLock = writeLock;
+    }
+
+    // Copies the file into memory; a missing file starts an empty database that the schema check fills in.
+    public void restore() throws SQLException {
+        if (!Files.exists(file)) {
+            System.out.println("No snapshot at " + file + ", starting with an empty database");
+            return;
+        }
+        try (Statement stmt = writer.createStatement()) {
+            stmt.executeUpdate("restore from " + quote(file));
+        }
+    }
+
+    public synchronized void start() {
+        if (intervalSeconds <= 0 || timer != null) {
+            return;
+        }
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "db-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (Exception e) {
+                System.err.println("Database checkpoint failed: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void checkpoint() throws Exception {
+        Path partial = file.resolveSibling(file.getFileName() + ".checkpoint");
+        writeLock.lock();
+        try (Statement stmt = writer.createStatement()) {
+            Files.deleteIfExists(partial);
+            stmt.executeUpdate("backup to " + quote(partial));
+        } finally {
+            writeLock.unlock();
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        checkpoints++;
+    }
+
+    // The driver reads the file name as one token, so a path with spaces must be quoted.
+    private static String quote(Path path) throws SQLException {
+        String name = path.toAbsolutePath().toString();
+        if (name.indexOf('"') >= 0) {
+            throw new SQLException("Snapshot path cannot contain a double quote: " + name);
+        }
+        return '"' + name + '"';
+    }
+
+    public long getCheckpointCount() {
+        return checkpoints;
+    }
+
+    // Stops the timer and takes a last checkpoint; call before the writer is closed.
+    public synchronized void shutdown() {
+        if (timer != null) {
+            timer.shutdownNow();
+            try {
+                timer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            timer = null;
+        }
+        try {
+            checkpoint();
+            System.out.println("Database snapshot saved to " + file + " (" + checkpoints + " checkpoints)");
+        } catch (Exception e) {
+            System.err.println("Failed to save database snapshot to " + file + ": " + e.getMessage());
+        }
+    }
+}
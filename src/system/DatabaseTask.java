@@ -0,0 +1,6 @@
+package system;
+
+@FunctionalInterface
+public interface DatabaseTask<T> {
+    T run() throws Exception;
+}
@@ -0,0 +1,209 @@
+package system;
+
+import core.Room;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Books a block of rooms for one customer and date range. The rooms are
+ * picked and probed for overlaps inside the write transaction that writes
+ * the group row, every booking and the room flags, so a block is either
+ * reserved in full or not at all.
+ */
+public class GroupBookingService {
+    private static final String ROOM_BOOKED_QUERY = """
+            SELECT 1 FROM bookings
+            WHERE room_number = ? AND status IN ('PENDING', 'CONFIRMED') AND check_in_day <= ? AND check_out_day >= ?
+            LIMIT 1
+            """;
+    private static final String INSERT_BOOKING_QUERY = """
+            INSERT INTO bookings (customer_id, room_number, check_in_date, check_out_date, check_in_day, check_out_day,
+                                  status, total_cost, booking_date, group_id)
+            VALUES (?, ?, ?, ?, ?, ?, 'PENDING', ?, ?, ?)
+            """;
+
+    public static class GroupBooking {
+        private final int groupId;
+        private final List<Integer> bookingIds;
+        private final List<Integer> roomNumbers;
+        private final double totalCost;
+
+        private GroupBooking(int groupId, List<Integer> bookingIds, List<Integer> roomNumbers, double totalCost) {
+            this.groupId = groupId;
+            this.bookingIds = bookingIds;
+            this.roomNumbers = roomNumbers;
+            this.totalCost = totalCost;
+        }
+
+        public int getGroupId() {
+            return groupId;
+        }
+
+        public List<Integer> getBookingIds() {
+            return bookingIds;
+        }
+
+        public List<Integer> getRoomNumbers() {
+            return roomNumbers;
+        }
+
+        public double getTotalCost() {
+            return totalCost;
+        }
+    }
+
+    private final DatabaseHandler dbHandler;
+
+    public GroupBookingService(DatabaseHandler dbHandler) {
+        this.dbHandler = dbHandler;
+    }
+
+    // Reserves the first free rooms of the given type; fails if fewer than count are free.
+    public GroupBooking bookByType(int customerId, String typeName, int count, LocalDate checkIn, LocalDate checkOut, LocalDate bookingDate) throws SQLException {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Room count must be positive");
+        }
+        long nights = nights(checkIn, checkOut);
+        return dbHandler.inWriteTransaction(() -> {
+            List<Room> chosen = new ArrayList<>(count);
+            try (PreparedStatement probe = dbHandler.prepareStatement(ROOM_BOOKED_QUERY)) {
+                for (Room room : dbHandler.getRoomCatalog().getByType(typeName)) {
+                    if (!isBooked(probe, room.getRoomNumber(), checkIn, checkOut)) {
+                        chosen.add(room);
+                        if (chosen.size() == count) {
+                            break;
+                        }
+                    }
+                }
+            }
+            if (chosen.size() < count) {
+                throw new IllegalStateException("Only " + chosen.size() + " of " + count + " " + typeName
+                        + " rooms are free for the selected dates");
+            }
+            return reserve(customerId, chosen, checkIn, checkOut, nights, bookingDate);
+        });
+    }
+
+    // Reserves exactly the listed rooms; fails if any of them is unknown or taken.
+    public GroupBooking bookRooms(int customerId, List<Integer> roomNumbers, LocalDate checkIn, LocalDate checkOut, LocalDate bookingDate) throws SQLException {
+        if (roomNumbers.isEmpty()) {
+            throw new IllegalArgumentException("No rooms given");
+        }
+        Set<Integer> unique = new LinkedHashSet<>(roomNumbers);
+        if (unique.size() != roomNumbers.size()) {
+            throw new IllegalArgumentException("A room is listed more than once");
+        }
+        long nights = nights(checkIn, checkOut);
+        return dbHandler.inWriteTransaction(() -> {
+            RoomCatalog catalog = dbHandler.getRoomCatalog();
+            List<Room> rooms = new ArrayList<>(unique.size());
+            List<Integer> taken = new ArrayList<>();
+            try (PreparedStatement probe = dbHandler.prepareStatement(ROOM_BOOKED_QUERY)) {
+                for (int roomNumber : unique) {
+                    Room room = catalog.get(roomNumber);
+                    if (room == null) {
+                        throw new IllegalArgumentException("Room " + roomNumber + " does not exist");
+                    }
+                    rooms.add(room);
+                    if (isBooked(probe, roomNumber, checkIn, checkOut)) {
+                        taken.add(roomNumber);
+                    }
+                }
+            }
+            if (!taken.isEmpty()) {
+                throw new IllegalStateException("Rooms not available for the selected dates: " + taken);
+            }
+            return reserve(customerId, rooms, checkIn, checkOut, nights, bookingDate);
+        });
+    }
+
+    private static long nights(LocalDate checkIn, LocalDate checkOut) {
+        long nights = checkOut.toEpochDay() - checkIn.toEpochDay();
+        if (nights <= 0) {
+            throw new IllegalArgumentException("Check-out date must be after check-in date");
+        }
+        return nights;
+    }
+
+    // One lookup on idx_bookings_room_status_days per room.
+    private static boolean isBooked(PreparedStatement probe, int roomNumber, LocalDate checkIn, LocalDate checkOut) throws SQLException {
+        probe.setInt(1, roomNumber);
+        probe.setLong(2, checkOut.toEpochDay());
+        probe.setLong(3, checkIn.toEpochDay());
+        try (ResultSet rs = probe.executeQuery()) {
+            return rs.next();
+        }
+    }
+
+    private GroupBooking reserve(int customerId, List<Room> rooms, LocalDate checkIn, LocalDate checkOut, long nights, LocalDate bookingDate) throws SQLException {
+        int groupId;
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
+                "INSERT INTO booking_groups (customer_id, check_in_date, check_out_date, room_count, created_date) VALUES (?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setInt(1, customerId);
+            stmt.setString(2, checkIn.toString());
+            stmt.setString(3, checkOut.toString());
+            stmt.setInt(4, rooms.size());
+            stmt.setString(5, bookingDate.toString());
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Failed to retrieve generated group ID");
+                }
+                groupId = keys.getInt(1);
+            }
+        }
+
+        double totalCost = 0;
+        try (PreparedStatement stmt = dbHandler.prepareStatement(INSERT_BOOKING_QUERY)) {
+            for (Room room : rooms) {
+                double cost = room.getPricePerNight() * nights;
+                totalCost += cost;
+                stmt.setInt(1, customerId);
+                stmt.setInt(2, room.getRoomNumber());
+                stmt.setString(3, checkIn.toString());
+                stmt.setString(4, checkOut.toString());
+                stmt.setLong(5, checkIn.toEpochDay());
+                stmt.setLong(6, checkOut.toEpochDay());
+                stmt.setDouble(7, cost);
+                stmt.setString(8, bookingDate.toString());
+                stmt.setInt(9, groupId);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        try (PreparedStatement stmt = dbHandler.prepareStatement("UPDATE rooms SET is_available = 0 WHERE room_number = ?")) {
+            for (Room room : rooms) {
+                stmt.setInt(1, room.getRoomNumber());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+
+        List<Integer> bookingIds = new ArrayList<>(rooms.size());
+        List<Integer> roomNumbers = new ArrayList<>(rooms.size());
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
+                "SELECT booking_id, room_number FROM bookings WHERE group_id = ? ORDER BY booking_id")) {
+            stmt.setInt(1, groupId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int bookingId = rs.getInt(1);
+                    int roomNumber = rs.getInt(2);
+                    bookingIds.add(bookingId);
+                    roomNumbers.add(roomNumber);
+                    dbHandler.bookingInserted(bookingId, roomNumber, checkIn.toEpochDay(), checkOut.toEpochDay(), "PENDING");
+                    dbHandler.roomChanged(roomNumber);
+                }
+            }
+        }
+        return new GroupBooking(groupId, bookingIds, roomNumbers, totalCost);
+    }
+}
@@ -0,0 +1,270 @@
+package system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Night-by-night occupancy of every room as a bitmap, one bit per night over
+ * a window of about two years starting the month before the current one.
+ * A booking occupies the nights from check-in up to, but not including,
+ * check-out, which is what the occupancy counts add up. Free-room checks use
+ * BookingEngine's inclusive rule instead, where a stay checking out on a day
+ * still blocks a check-in that day, so they also look at the night before
+ * check-in. Once the month turns the window is stale and the database handler
+ * reloads it. Range checks and occupancy counts work a 64-night word at a time.
+ */
+public class OccupancyCalendar {
+    public static final int WINDOW_NIGHTS = 768;
+    private static final int WORDS = WINDOW_NIGHTS / Long.SIZE;
+
+    private final Map<Integer, RoomNights> rooms = new HashMap<>();
+    private final Map<Integer, Stay> stays = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long firstDay = windowStart();
+
+    public void load(Connection connection) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            rooms.clear();
+            stays.clear();
+            firstDay = windowStart();
+            try (PreparedStatement stmt = connection.prepareStatement(
+                    "SELECT booking_id, room_number, check_in_day, check_out_day FROM bookings " +
+                            "WHERE status IN ('PENDING', 'CONFIRMED') AND check_out_day > ? AND check_in_day < ?")) {
+                stmt.setLong(1, firstDay);
+                stmt.setLong(2, firstDay + WINDOW_NIGHTS);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        addStay(rs.getInt(1), rs.getInt(2), rs.getLong(3), rs.getLong(4));
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public LocalDate getFirstNight() {
+        lock.readLock().lock();
+        try {
+            return LocalDate.ofEpochDay(firstDay);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public LocalDate getLastNight() {
+        return getFirstNight().plusDays(WINDOW_NIGHTS - 1);
+    }
+
+    // True once the month has turned since the window was loaded.
+    public boolean isStale() {
+        lock.readLock().lock();
+        try {
+            return firstDay != windowStart();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // True if isFree and freeRooms can answer for a stay from checkIn to checkOut.
+    public boolean covers(LocalDate checkIn, LocalDate checkOut) {
+        lock.readLock().lock();
+        try {
+            return checkIn.toEpochDay() - 1 >= firstDay && checkOut.toEpochDay() < firstDay + WINDOW_NIGHTS;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // True if no booking overlaps the stay under BookingEngine's rule, check-out day included.
+    public boolean isFree(int roomNumber, LocalDate checkIn, LocalDate checkOut) {
+        lock.readLock().lock();
+        try {
+            int from = night(checkIn.minusDays(1));
+            int to = night(checkOut.plusDays(1));
+            RoomNights nights = rooms.get(roomNumber);
+            return nights == null || !anySet(nights.bits, from, to);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> freeRooms(Iterable<Integer> roomNumbers, LocalDate checkIn, LocalDate checkOut) {
+        lock.readLock().lock();
+        try {
+            int from = night(checkIn.minusDays(1));
+            int to = night(checkOut.plusDays(1));
+            List<Integer> free = new ArrayList<>();
+            for (int roomNumber : roomNumbers) {
+                RoomNights nights = rooms.get(roomNumber);
+                if (nights == null || !anySet(nights.bits, from, to)) {
+                    free.add(roomNumber);
+                }
+            }
+            return free;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Booked room-nights across all rooms between the two dates, the end date excluded.
+    public long occupiedNights(LocalDate from, LocalDate to) {
+        lock.readLock().lock();
+        try {
+            int start = night(from);
+            int end = night(to);
+            long total = 0;
+            for (RoomNights nights : rooms.values()) {
+                total += count(nights.bits, start, end);
+            }
+            return total;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long occupiedNights(YearMonth month) {
+        return occupiedNights(month.atDay(1), month.plusMonths(1).atDay(1));
+    }
+
+    // Share of the available room-nights in the month that are booked, from 0 to 1.
+    public double occupancy(YearMonth month, int roomCount) {
+        if (roomCount <= 0) {
+            return 0;
+        }
+        return (double) occupiedNights(month) / ((long) roomCount * month.lengthOfMonth());
+    }
+
+    public void add(int bookingId, int roomNumber, long checkInDay, long checkOutDay, String status) {
+        if (!isBooked(status)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Stay previous = stays.remove(bookingId);
+            if (previous != null) {
+                RoomNights old = rooms.get(previous.roomNumber);
+                old.stays.remove(bookingId);
+                old.rebuild(firstDay);
+            }
+            addStay(bookingId, roomNumber, checkInDay, checkOutDay);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void updateStatus(int bookingId, String status) {
+        if (isBooked(status)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Stay stay = stays.remove(bookingId);
+            if (stay != null) {
+                RoomNights nights = rooms.get(stay.roomNumber);
+                nights.stays.remove(bookingId);
+                // Rebuilt rather than cleared, in case old data has another stay on the same nights.
+                nights.rebuild(firstDay);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static long windowStart() {
+        return LocalDate.now().withDayOfMonth(1).minusMonths(1).toEpochDay();
+    }
+
+    private static boolean isBooked(String status) {
+        return "PENDING".equals(status) || "CONFIRMED".equals(status);
+    }
+
+    private void addStay(int bookingId, int roomNumber, long checkInDay, long checkOutDay) {
+        if (checkOutDay <= firstDay || checkInDay >= firstDay + WINDOW_NIGHTS) {
+            return;
+        }
+        Stay stay = new Stay(roomNumber, checkInDay, checkOutDay);
+        stays.put(bookingId, stay);
+        RoomNights nights = rooms.computeIfAbsent(roomNumber, k -> new RoomNights());
+        nights.stays.put(bookingId, stay);
+        nights.mark(stay, firstDay);
+    }
+
+    private int night(LocalDate date) {
+        long offset = date.toEpochDay() - firstDay;
+        if (offset < 0 || offset > WINDOW_NIGHTS) {
+            throw new IllegalArgumentException(date + " is outside the occupancy calendar ("
+                    + LocalDate.ofEpochDay(firstDay) + " to " + LocalDate.ofEpochDay(firstDay + WINDOW_NIGHTS) + ")");
+        }
+        return (int) offset;
+    }
+
+    // Bits from..to-1 of the given word, the rest cleared.
+    private static long mask(int word, int from, int to) {
+        int lo = Math.max(from - word * Long.SIZE, 0);
+        int hi = Math.min(to - word * Long.SIZE, Long.SIZE);
+        long high = hi == Long.SIZE ? -1L : (1L << hi) - 1;
+        return high & (-1L << lo);
+    }
+
+    private static boolean anySet(long[] bits, int from, int to) {
+        for (int word = from / Long.SIZE; word * Long.SIZE < to; word++) {
+            if ((bits[word] & mask(word, from, to)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int count(long[] bits, int from, int to) {
+        int total = 0;
+        for (int word = from / Long.SIZE; word * Long.SIZE < to; word++) {
+            total += Long.bitCount(bits[word] & mask(word, from, to));
+        }
+        return total;
+    }
+
+    private static class Stay {
+        private final int roomNumber;
+        private final long checkInDay;
+        private final long checkOutDay;
+
+        private Stay(int roomNumber, long checkInDay, long checkOutDay) {
+            this.roomNumber = roomNumber;
+            this.checkInDay = checkInDay;
+            this.checkOutDay = checkOutDay;
+        }
+    }
+
+    private static class RoomNights {
+        private final long[] bits = new long[WORDS];
+        private final Map<Integer, Stay> stays = new HashMap<>();
+
+        private void mark(Stay stay, long firstDay) {
+            int from = (int) Math.max(stay.checkInDay - firstDay, 0);
+            int to = (int) Math.min(stay.checkOutDay - firstDay, WINDOW_NIGHTS);
+            for (int word = from / Long.SIZE; word * Long.SIZE < to; word++) {
+                bits[word] |= mask(word, from, to);
+            }
+        }
+
+        private void rebuild(long firstDay) {
+            Arrays.fill(bits, 0L);
+            for (Stay stay : stays.values()) {
+                mark(stay, firstDay);
+            }
+        }
+    }
+}
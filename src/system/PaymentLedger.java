@@ -0,0 +1,355 @@
+package system;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only record of money in and out per booking: card and cash
+ * payments and refunds, each stored with the booking's balance after it.
+ * Entries are group committed. A single writer thread collects whatever
+ * arrives within a few milliseconds and writes it in one transaction. An
+ * entry's future completes only after that transaction has committed, so
+ * an acknowledged entry is durable. If a batch fails, its entries are
+ * retried one at a time so only the ones that cannot be written fail.
+ */
+public class PaymentLedger {
+    private static final int FLUSH_INTERVAL_MS = Integer.getInteger("hotel.ledger.flushIntervalMs", 5);
+    private static final int MAX_BATCH = Integer.getInteger("hotel.ledger.maxBatch", 256);
+
+    public enum EntryType {
+        CARD, CASH, REFUND
+    }
+
+    public static class Entry {
+        private final long entryId;
+        private final int bookingId;
+        private final EntryType type;
+        private final double amount;
+        private final double balance;
+
+        private Entry(long entryId, int bookingId, EntryType type, double amount, double balance) {
+            this.entryId = entryId;
+            this.bookingId = bookingId;
+            this.type = type;
+            this.amount = amount;
+            this.balance = balance;
+        }
+
+        public long getEntryId() {
+            return entryId;
+        }
+
+        public int getBookingId() {
+            return bookingId;
+        }
+
+        public EntryType getType() {
+            return type;
+        }
+
+        // Negative for refunds.
+        public double getAmount() {
+            return amount;
+        }
+
+        public double getBalance() {
+            return balance;
+        }
+    }
+
+    private static class Pending {
+        private final int bookingId;
+        private final EntryType type;
+        private final double amount;
+        private final Integer paymentId;
+        private final String reference;
+        private final long enqueuedNanos = System.nanoTime();
+        private final CompletableFuture<Entry> future = new CompletableFuture<>();
+
+        private Pending(int bookingId, EntryType type, double amount, Integer paymentId, String reference) {
+            this.bookingId = bookingId;
+            this.type = type;
+            this.amount = amount;
+            this.paymentId = paymentId;
+            this.reference = reference;
+        }
+    }
+
+    // Queued by shutdown behind the last entry; the writer stops when it reaches it.
+    private static final Pending STOP = new Pending(0, EntryType.CASH, 0, null, null);
+
+    private final DatabaseHandler dbHandler;
+    private final LinkedBlockingQueue<Pending> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final Object appendLock = new Object();
+    private boolean running = true;
+    private final long startedNanos = System.nanoTime();
+    private final AtomicLong entriesCommitted = new AtomicLong();
+    private final AtomicLong entriesRejected = new AtomicLong();
+    private final AtomicLong batchesCommitted = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    public PaymentLedger(DatabaseHandler dbHandler) {
+        this.dbHandler = dbHandler;
+        this.writer = new Thread(this::writeLoop, "payment-ledger-writer");
+        writer.setDaemon(true);
+    }
+
+    public void start() throws SQLException {
+        writer.start();
+        int missing = recordMissingPayments();
+        if (missing > 0) {
+            System.out.println("Payment ledger: recording " + missing + " payments made before it existed");
+        }
+    }
+
+    // Records a card or cash payment row; appending the same payment twice returns the first entry.
+    public CompletableFuture<Entry> recordPayment(int paymentId, int bookingId, double amount, String paymentMethod) {
+        return append(new Pending(bookingId, EntryType.valueOf(paymentMethod), amount, paymentId, null));
+    }
+
+    // Fails with IllegalStateException if the refund is more than the booking's balance.
+    public CompletableFuture<Entry> refund(int bookingId, double amount, String reason) {
+        if (amount <= 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Refund amount must be positive"));
+        }
+        return append(new Pending(bookingId, EntryType.REFUND, -amount, null, reason));
+    }
+
+    public double getBalance(int bookingId) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(
+                "SELECT balance FROM payment_ledger WHERE booking_id = ? ORDER BY entry_id DESC LIMIT 1")) {
+            stmt.setInt(1, bookingId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0;
+            }
+        }
+    }
+
+    public long getEntriesCommitted() {
+        return entriesCommitted.get();
+    }
+
+    public long getEntriesRejected() {
+        return entriesRejected.get();
+    }
+
+    public long getBatchesCommitted() {
+        return batchesCommitted.get();
+    }
+
+    public double getAverageBatchSize() {
+        long batches = batchesCommitted.get();
+        return batches == 0 ? 0 : (double) entriesCommitted.get() / batches;
+    }
+
+    // From append to acknowledgement.
+    public double getAverageLatencyMillis() {
+        long entries = entriesCommitted.get();
+        return entries == 0 ? 0 : totalLatencyNanos.get() / 1e6 / entries;
+    }
+
+    public double getMaxLatencyMillis() {
+        return maxLatencyNanos.get() / 1e6;
+    }
+
+    public double getEntriesPerSecond() {
+        double seconds = (System.nanoTime() - startedNanos) / 1e9;
+        return seconds <= 0 ? 0 : entriesCommitted.get() / seconds;
+    }
+
+    public int getQueuedCount() {
+        return queue.size();
+    }
+
+    // Writes everything already appended, then stops the writer.
+    public void shutdown() {
+        synchronized (appendLock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            queue.add(STOP);
+        }
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.printf("Payment ledger: %d entries in %d batches (avg %.1f per batch, avg latency %.2f ms, max %.2f ms)%n",
+                getEntriesCommitted(), getBatchesCommitted(), getAverageBatchSize(),
+                getAverageLatencyMillis(), getMaxLatencyMillis());
+    }
+
+    private CompletableFuture<Entry> append(Pending pending) {
+        synchronized (appendLock) {
+            if (!running) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Payment ledger is shut down"));
+            }
+            queue.add(pending);
+        }
+        return pending.future;
+    }
+
+    private int recordMissingPayments() throws SQLException {
+        int missing = 0;
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(
+                "SELECT p.payment_id, p.booking_id, p.amount, p.payment_method FROM payments p " +
+                        "WHERE NOT EXISTS (SELECT 1 FROM payment_ledger l WHERE l.payment_id = p.payment_id) ORDER BY p.payment_id");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                recordPayment(rs.getInt(1), rs.getInt(2), rs.getDouble(3), rs.getString(4));
+                missing++;
+            }
+        }
+        return missing;
+    }
+
+    private void writeLoop() {
+        List<Pending> batch = new ArrayList<>(MAX_BATCH);
+        boolean stopping = false;
+        while (!stopping) {
+            try {
+                Pending first = queue.take();
+                if (first == STOP) {
+                    break;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MS);
+                while (batch.size() < MAX_BATCH) {
+                    long wait = deadline - System.nanoTime();
+                    Pending next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == STOP) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                stopping = true;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+        // Only left over if the writer was interrupted; nothing will write them now.
+        for (Pending pending; (pending = queue.poll()) != null; ) {
+            if (pending != STOP) {
+                pending.future.completeExceptionally(new IllegalStateException("Payment ledger is shut down"));
+            }
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        Map<Pending, Entry> written;
+        try {
+            written = dbHandler.inWriteTransaction(() -> write(batch));
+        } catch (Exception e) {
+            if (batch.size() > 1) {
+                for (Pending pending : batch) {
+                    flush(List.of(pending));
+                }
+                return;
+            }
+            System.err.println("Payment ledger entry for booking " + batch.get(0).bookingId + " failed: " + e.getMessage());
+            batch.get(0).future.completeExceptionally(e);
+            return;
+        }
+        long now = System.nanoTime();
+        batchesCommitted.incrementAndGet();
+        for (Pending pending : batch) {
+            Entry entry = written.get(pending);
+            if (entry == null) {
+                entriesRejected.incrementAndGet();
+                pending.future.completeExceptionally(new IllegalStateException(
+                        "Refund of " + -pending.amount + " exceeds the balance of booking " + pending.bookingId));
+                continue;
+            }
+            long latency = now - pending.enqueuedNanos;
+            entriesCommitted.incrementAndGet();
+            totalLatencyNanos.addAndGet(latency);
+            maxLatencyNanos.accumulateAndGet(latency, Math::max);
+            pending.future.complete(entry);
+        }
+    }
+
+    // Runs inside the batch transaction; refunds that would overdraw a booking are left out of the result.
+    private Map<Pending, Entry> write(List<Pending> batch) throws SQLException {
+        Map<Pending, Entry> written = new HashMap<>();
+        Map<Integer, Double> balances = new HashMap<>();
+        String recordedAt = LocalDateTime.now().toString();
+        try (PreparedStatement insert = dbHandler.prepareStatement(
+                "INSERT INTO payment_ledger (booking_id, entry_type, amount, balance, payment_id, reference, recorded_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (Pending pending : batch) {
+                if (pending.paymentId != null) {
+                    Entry existing = entryForPayment(pending.paymentId);
+                    if (existing != null) {
+                        written.put(pending, existing);
+                        continue;
+                    }
+                }
+                Double current = balances.get(pending.bookingId);
+                double balance = (current != null ? current : storedBalance(pending.bookingId)) + pending.amount;
+                if (balance < -0.005) {
+                    continue;
+                }
+                insert.setInt(1, pending.bookingId);
+                insert.setString(2, pending.type.name());
+                insert.setDouble(3, pending.amount);
+                insert.setDouble(4, balance);
+                insert.setObject(5, pending.paymentId);
+                insert.setString(6, pending.reference);
+                insert.setString(7, recordedAt);
+                insert.executeUpdate();
+                try (ResultSet keys = insert.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("Failed to retrieve generated ledger entry ID");
+                    }
+                    written.put(pending, new Entry(keys.getLong(1), pending.bookingId, pending.type, pending.amount, balance));
+                }
+                balances.put(pending.bookingId, balance);
+            }
+        }
+        return written;
+    }
+
+    private double storedBalance(int bookingId) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
+                "SELECT balance FROM payment_ledger WHERE booking_id = ? ORDER BY entry_id DESC LIMIT 1")) {
+            stmt.setInt(1, bookingId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getDouble(1) : 0;
+            }
+        }
+    }
+
+    private Entry entryForPayment(int paymentId) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
+                "SELECT entry_id, booking_id, entry_type, amount, balance FROM payment_ledger WHERE payment_id = ?")) {
+            stmt.setInt(1, paymentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new Entry(rs.getLong(1), rs.getInt(2), EntryType.valueOf(rs.getString(3)), rs.getDouble(4), rs.getDouble(5));
+            }
+        }
+    }
+}
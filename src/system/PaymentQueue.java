@@ -0,0 +1,262 @@
+package system;
+
+import payment.PaymentStatus;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Settles payments on worker threads. Each submission carries an idempotency
+ * key chosen by the client: a repeat of a key that is still in flight gets the
+ * same future, and a repeat of a settled key gets the outcome recorded in
+ * payment_intents instead of a second charge. An intent is settled in one
+ * write transaction that checks the booking, confirms it, inserts the payment
+ * and records the outcome, so a failure leaves nothing half written. A
+ * completed payment is acknowledged once its ledger entry is committed too;
+ * if only the ledger write fails the payment still stands and is reported as
+ * completed, and the ledger records it from payments on its next start.
+ */
+public class PaymentQueue {
+    private static final int WORKERS = Integer.getInteger("hotel.payments.workers", 2);
+    private static final int QUEUE_SIZE = 1024;
+
+    public static class Result {
+        private final String idempotencyKey;
+        private final int bookingId;
+        private final double amount;
+        private final String paymentMethod;
+        private final PaymentStatus status;
+        private final int paymentId;
+        private final String message;
+
+        private Result(String idempotencyKey, int bookingId, double amount, String paymentMethod, PaymentStatus status,
+                       int paymentId, String message) {
+            this.idempotencyKey = idempotencyKey;
+            this.bookingId = bookingId;
+            this.amount = amount;
+            this.paymentMethod = paymentMethod;
+            this.status = status;
+            this.paymentId = paymentId;
+            this.message = message;
+        }
+
+        public String getIdempotencyKey() {
+            return idempotencyKey;
+        }
+
+        public int getBookingId() {
+            return bookingId;
+        }
+
+        public double getAmount() {
+            return amount;
+        }
+
+        public String getPaymentMethod() {
+            return paymentMethod;
+        }
+
+        public PaymentStatus getStatus() {
+            return status;
+        }
+
+        public boolean isCompleted() {
+            return status == PaymentStatus.COMPLETED;
+        }
+
+        // Zero unless the payment completed.
+        public int getPaymentId() {
+            return paymentId;
+        }
+
+        // Why the payment failed, or null.
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    private final DatabaseHandler dbHandler;
+    private final PaymentLedger ledger;
+    private final ThreadPoolExecutor workers;
+    private final ConcurrentHashMap<String, CompletableFuture<Result>> inFlight = new ConcurrentHashMap<>();
+
+    public PaymentQueue(DatabaseHandler dbHandler, PaymentLedger ledger) {
+        this.dbHandler = dbHandler;
+        this.ledger = ledger;
+        AtomicInteger counter = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(WORKERS, WORKERS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_SIZE), r -> {
+            Thread thread = new Thread(r, "payment-worker-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        workers.allowCoreThreadTimeOut(true);
+    }
+
+    public CompletableFuture<Result> submit(String idempotencyKey, int bookingId, double amount, String paymentMethod) {
+        if (idempotencyKey == null || idempotencyKey.isBlank()) {
+            throw new IllegalArgumentException("An idempotency key is required");
+        }
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        CompletableFuture<Result> existing = inFlight.putIfAbsent(idempotencyKey, future);
+        if (existing != null) {
+            return existing;
+        }
+        future.whenComplete((result, error) -> inFlight.remove(idempotencyKey, future));
+        try {
+            workers.execute(() -> {
+                try {
+                    Result result = settle(idempotencyKey, bookingId, amount, paymentMethod);
+                    if (!result.isCompleted()) {
+                        future.complete(result);
+                        return;
+                    }
+                    // Also run for replays, which fills in an entry lost to a crash between the two commits.
+                    ledger.recordPayment(result.paymentId, result.bookingId, result.amount, result.paymentMethod)
+                            .whenComplete((entry, error) -> {
+                                if (error != null) {
+                                    System.err.println("Payment " + result.paymentId + " settled but its ledger entry failed: "
+                                            + error.getMessage());
+                                }
+                                future.complete(result);
+                            });
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    // PENDING while queued or running, the recorded outcome once settled, null for an unknown key.
+    public PaymentStatus getStatus(String idempotencyKey) throws SQLException {
+        if (inFlight.containsKey(idempotencyKey)) {
+            return PaymentStatus.PENDING;
+        }
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(
+                "SELECT status FROM payment_intents WHERE idempotency_key = ?")) {
+            stmt.setString(1, idempotencyKey);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? PaymentStatus.valueOf(rs.getString(1)) : null;
+            }
+        }
+    }
+
+    public int getQueuedCount() {
+        return workers.getQueue().size() + workers.getActiveCount();
+    }
+
+    // Stops taking submissions and waits a little for queued payments to settle.
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                System.err.println("Payment queue stopped with " + workers.getQueue().size() + " payments unsettled");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Result settle(String key, int bookingId, double amount, String paymentMethod) throws SQLException {
+        return dbHandler.inWriteTransaction(() -> {
+            Result recorded = recorded(key);
+            if (recorded != null) {
+                if (recorded.bookingId != bookingId) {
+                    throw new IllegalArgumentException("Idempotency key " + key + " belongs to booking " + recorded.bookingId);
+                }
+                return recorded;
+            }
+
+            String failure = null;
+            try (PreparedStatement stmt = dbHandler.prepareStatement(
+                    "SELECT total_cost, status FROM bookings WHERE booking_id = ?")) {
+                stmt.setInt(1, bookingId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        failure = "Booking not found: " + bookingId;
+                    } else if (!rs.getString("status").equals("PENDING")) {
+                        failure = "Booking is not in PENDING status";
+                    } else if (amount < rs.getDouble("total_cost")) {
+                        failure = "Insufficient payment amount";
+                    }
+                }
+            }
+            if (failure != null) {
+                record(key, bookingId, amount, paymentMethod, PaymentStatus.FAILED, null, failure);
+                return new Result(key, bookingId, amount, paymentMethod, PaymentStatus.FAILED, 0, failure);
+            }
+
+            String today = LocalDate.now().toString();
+            try (PreparedStatement stmt = dbHandler.prepareStatement(
+                    "UPDATE bookings SET status = 'CONFIRMED', booking_date = ? WHERE booking_id = ?")) {
+                stmt.setString(1, today);
+                stmt.setInt(2, bookingId);
+                stmt.executeUpdate();
+            }
+            int paymentId;
+            try (PreparedStatement stmt = dbHandler.prepareStatement(
+                    "INSERT INTO payments (booking_id, amount, payment_method, payment_date) VALUES (?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setInt(1, bookingId);
+                stmt.setDouble(2, amount);
+                stmt.setString(3, paymentMethod);
+                stmt.setString(4, today);
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    if (!keys.next()) {
+                        throw new SQLException("Failed to retrieve generated payment ID");
+                    }
+                    paymentId = keys.getInt(1);
+                }
+            }
+            record(key, bookingId, amount, paymentMethod, PaymentStatus.COMPLETED, paymentId, null);
+            dbHandler.bookingStatusChanged(bookingId, "CONFIRMED");
+            return new Result(key, bookingId, amount, paymentMethod, PaymentStatus.COMPLETED, paymentId, null);
+        });
+    }
+
+    private Result recorded(String key) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
+                "SELECT booking_id, amount, payment_method, status, payment_id, failure_reason FROM payment_intents WHERE idempotency_key = ?")) {
+            stmt.setString(1, key);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                return new Result(key, rs.getInt("booking_id"), rs.getDouble("amount"), rs.getString("payment_method"),
+                        PaymentStatus.valueOf(rs.getString("status")), rs.getInt("payment_id"), rs.getString("failure_reason"));
+            }
+        }
+    }
+
+    private void record(String key, int bookingId, double amount, String paymentMethod, PaymentStatus status,
+                        Integer paymentId, String failure) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareStatement(
+                "INSERT INTO payment_intents (idempotency_key, booking_id, amount, payment_method, status, payment_id, failure_reason, settled_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+            stmt.setString(1, key);
+            stmt.setInt(2, bookingId);
+            stmt.setDouble(3, amount);
+            stmt.setString(4, paymentMethod);
+            stmt.setString(5, status.name());
+            stmt.setObject(6, paymentId);
+            stmt.setString(7, failure);
+            stmt.setString(8, LocalDateTime.now().toString());
+            stmt.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package system;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Reads the daily reporting rollups. Bookings are rolled up by check-in day,
+ * room type and status, payments by payment day and method. Triggers keep
+ * both tables current on every insert, update and delete, including a room
+ * changing type, so a period report reads a few rows per day instead of the
+ * bookings table. A stay's nights and revenue all count on its check-in day:
+ * a period's figures are those of the stays checking in during it, not of
+ * the nights that fall inside it. A rebuild recomputes both tables from
+ * scratch, should they ever drift from the rows they summarise.
+ */
+public class ReportRollups {
+    static final String POPULATE_BOOKING_ROLLUP = """
+            INSERT INTO booking_daily_rollup (day, room_type, status, bookings, nights, revenue)
+            SELECT day, room_type, status, COUNT(*), SUM(nights), SUM(total_cost) FROM (
+                SELECT COALESCE(b.check_in_day, CAST(julianday(b.check_in_date) - 2440587.5 AS INTEGER)) AS day,
+                       COALESCE(r.type_name, 'UNKNOWN') AS room_type,
+                       b.status,
+                       COALESCE(b.check_out_day - b.check_in_day,
+                                CAST(julianday(b.check_out_date) - julianday(b.check_in_date) AS INTEGER), 0) AS nights,
+                       b.total_cost
+                FROM bookings b LEFT JOIN rooms r ON r.room_number = b.room_number)
+            WHERE day IS NOT NULL
+            GROUP BY day, room_type, status""";
+    static final String POPULATE_PAYMENT_ROLLUP = """
+            INSERT INTO payment_daily_rollup (day, payment_method, payments, amount)
+            SELECT CAST(julianday(payment_date) - 2440587.5 AS INTEGER) AS day, payment_method, COUNT(*), SUM(amount)
+            FROM payments
+            WHERE julianday(payment_date) IS NOT NULL
+            GROUP BY day, payment_method""";
+
+    public static class Summary {
+        private final LocalDate from;
+        private final LocalDate to;
+        private final Map<String, Integer> bookingsByStatus = new TreeMap<>();
+        private final Map<String, Integer> checkInNightsByRoomType = new TreeMap<>();
+        private final Map<String, Double> checkInRevenueByRoomType = new TreeMap<>();
+        private final Map<String, Double> paymentsByMethod = new TreeMap<>();
+        private int checkInNights;
+        private double checkInRevenue;
+
+        private Summary(LocalDate from, LocalDate to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        public LocalDate getFrom() {
+            return from;
+        }
+
+        public LocalDate getTo() {
+            return to;
+        }
+
+        public Map<String, Integer> getBookingsByStatus() {
+            return bookingsByStatus;
+        }
+
+        public int getBookings() {
+            return bookingsByStatus.values().stream().mapToInt(Integer::intValue).sum();
+        }
+
+        // All nights of the stays checking in during the period, even those after it; cancelled bookings are left out.
+        public int getCheckInNights() {
+            return checkInNights;
+        }
+
+        // The full cost of the stays checking in during the period; cancelled bookings are left out.
+        public double getCheckInRevenue() {
+            return checkInRevenue;
+        }
+
+        public Map<String, Integer> getCheckInNightsByRoomType() {
+            return checkInNightsByRoomType;
+        }
+
+        public Map<String, Double> getCheckInRevenueByRoomType() {
+            return checkInRevenueByRoomType;
+        }
+
+        public Map<String, Double> getPaymentsByMethod() {
+            return paymentsByMethod;
+        }
+
+        public double getCollected() {
+            return paymentsByMethod.values().stream().mapToDouble(Double::doubleValue).sum();
+        }
+    }
+
+    private final DatabaseHandler dbHandler;
+
+    public ReportRollups(DatabaseHandler dbHandler) {
+        this.dbHandler = dbHandler;
+    }
+
+    // Totals for stays starting and payments made from 'from' up to, but not including, 'to'.
+    public Summary summarize(LocalDate from, LocalDate to) throws SQLException {
+        Summary summary = new Summary(from, to);
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(
+                "SELECT room_type, status, SUM(bookings), SUM(nights), SUM(revenue) FROM booking_daily_rollup " +
+                        "WHERE day >= ? AND day < ? GROUP BY room_type, status HAVING SUM(bookings) <> 0")) {
+            stmt.setLong(1, from.toEpochDay());
+            stmt.setLong(2, to.toEpochDay());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String roomType = rs.getString(1);
+                    String status = rs.getString(2);
+                    summary.bookingsByStatus.merge(status, rs.getInt(3), Integer::sum);
+                    if (!status.equals("CANCELLED")) {
+                        summary.checkInNights += rs.getInt(4);
+                        summary.checkInRevenue += rs.getDouble(5);
+                        summary.checkInNightsByRoomType.merge(roomType, rs.getInt(4), Integer::sum);
+                        summary.checkInRevenueByRoomType.merge(roomType, rs.getDouble(5), Double::sum);
+                    }
+                }
+            }
+        }
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(
+                "SELECT payment_method, SUM(amount) FROM payment_daily_rollup WHERE day >= ? AND day < ? GROUP BY payment_method")) {
+            stmt.setLong(1, from.toEpochDay());
+            stmt.setLong(2, to.toEpochDay());
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    summary.paymentsByMethod.put(rs.getString(1), rs.getDouble(2));
+                }
+            }
+        }
+        return summary;
+    }
+
+    // Recomputes both rollups from bookings and payments in one write transaction.
+    public void rebuild() throws SQLException {
+        long start = System.currentTimeMillis();
+        dbHandler.inWriteTransaction(() -> {
+            try (Statement stmt = dbHandler.getConnection().createStatement()) {
+                stmt.execute("DELETE FROM booking_daily_rollup");
+                stmt.execute("DELETE FROM payment_daily_rollup");
+                stmt.execute(POPULATE_BOOKING_ROLLUP);
+                stmt.execute(POPULATE_PAYMENT_ROLLUP);
+            }
+            return null;
+        });
+        System.out.println("Rebuilt reporting rollups in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
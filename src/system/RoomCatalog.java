@@ -0,0 +1,167 @@
+package system;
+
+import core.Room;
+import core.RoomType;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory copy of the rooms table, keyed by room number with views by type
+ * and by availability. Every write to rooms goes through the database handler
+ * hooks so the catalog stays in step, and each change bumps a version that
+ * callers can compare to know whether anything they built from it is stale.
+ * The catalog keeps its own copies: rooms go in as copies and come out as
+ * copies, so changing a returned Room never changes the cached one.
+ */
+public class RoomCatalog {
+    private static final String ROOM_QUERY =
+            "SELECT room_number, type_name, price_per_night, is_available, location, amenities FROM rooms";
+
+    private final Map<Integer, Room> rooms = new TreeMap<>();
+    private final Map<String, TreeSet<Integer>> byType = new HashMap<>();
+    private final TreeSet<Integer> available = new TreeSet<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long version;
+
+    public void load(Connection connection, DatabaseHandler dbHandler) throws SQLException {
+        lock.writeLock().lock();
+        try {
+            rooms.clear();
+            byType.clear();
+            available.clear();
+            try (PreparedStatement stmt = connection.prepareStatement(ROOM_QUERY);
+                 ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    index(readRoom(rs, dbHandler));
+                }
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Re-reads one row after a write that bypassed the Room object.
+    public void reload(Connection connection, int roomNumber, DatabaseHandler dbHandler) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(ROOM_QUERY + " WHERE room_number = ?")) {
+            stmt.setInt(1, roomNumber);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    put(readRoom(rs, dbHandler));
+                } else {
+                    remove(roomNumber);
+                }
+            }
+        }
+    }
+
+    public Room get(int roomNumber) {
+        lock.readLock().lock();
+        try {
+            Room room = rooms.get(roomNumber);
+            return room == null ? null : room.copy();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Room> getAll() {
+        lock.readLock().lock();
+        try {
+            return collect(rooms.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Room> getByType(String typeName) {
+        lock.readLock().lock();
+        try {
+            return collect(byType.getOrDefault(typeName, new TreeSet<>()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Room> getAvailable() {
+        lock.readLock().lock();
+        try {
+            return collect(available);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getVersion() {
+        lock.readLock().lock();
+        try {
+            return version;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Room room) {
+        lock.writeLock().lock();
+        try {
+            unindex(room.getRoomNumber());
+            index(room.copy());
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int roomNumber) {
+        lock.writeLock().lock();
+        try {
+            if (unindex(roomNumber)) {
+                version++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void index(Room room) {
+        rooms.put(room.getRoomNumber(), room);
+        byType.computeIfAbsent(room.getRoomType().getTypeName(), k -> new TreeSet<>()).add(room.getRoomNumber());
+        if (room.isAvailable()) {
+            available.add(room.getRoomNumber());
+        }
+    }
+
+    private boolean unindex(int roomNumber) {
+        Room previous = rooms.remove(roomNumber);
+        available.remove(roomNumber);
+        byType.values().removeIf(numbers -> numbers.remove(roomNumber) && numbers.isEmpty());
+        return previous != null;
+    }
+
+    private List<Room> collect(Set<Integer> roomNumbers) {
+        List<Room> result = new ArrayList<>(roomNumbers.size());
+        for (int roomNumber : roomNumbers) {
+            result.add(rooms.get(roomNumber).copy());
+        }
+        return result;
+    }
+
+    private static Room readRoom(ResultSet rs, DatabaseHandler dbHandler) throws SQLException {
+        double price = rs.getDouble("price_per_night");
+        RoomType roomType = new RoomType(rs.getString("type_name"), "", price, 0, false);
+        return Room.load(rs.getInt("room_number"), roomType, price, rs.getInt("is_available") == 1,
+                rs.getString("location"), rs.getString("amenities"), dbHandler);
+    }
+}
@@ -0,0 +1,530 @@
+package system;
+
+import core.Room;
+import core.RoomType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams room definitions from CSV or JSON into the rooms table. Rows are
+ * validated as they are read and written with executeBatch, one transaction
+ * per chunk, so memory stays flat however large the file is. Invalid rows,
+ * duplicates within the file and rooms that already exist are reported per
+ * row and skipped; nothing is overwritten.
+ */
+public class RoomImporter {
+    private static final int DEFAULT_CHUNK_SIZE = 200;
+    private static final String INSERT_QUERY =
+            "INSERT OR IGNORE INTO rooms (room_number, type_name, price_per_night, is_available, location, amenities) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+
+    public enum Format {
+        CSV, JSON;
+
+        public static Format forFileName(String fileName) {
+            return fileName.toLowerCase(Locale.ROOT).endsWith(".json") ? JSON : CSV;
+        }
+    }
+
+    public interface Listener {
+        void progress(int rowsRead, int imported);
+
+        void rowFailed(int row, String message);
+    }
+
+    public static class Result {
+        private final int rowsRead;
+        private final int imported;
+        private final List<String> errors;
+
+        private Result(int rowsRead, int imported, List<String> errors) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.errors = errors;
+        }
+
+        public int getRowsRead() {
+            return rowsRead;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        public List<String> getErrors() {
+            return errors;
+        }
+    }
+
+    private final DatabaseHandler dbHandler;
+    private final int chunkSize;
+
+    public RoomImporter(DatabaseHandler dbHandler) {
+        this(dbHandler, DEFAULT_CHUNK_SIZE);
+    }
+
+    public RoomImporter(DatabaseHandler dbHandler, int chunkSize) {
+        this.dbHandler = dbHandler;
+        this.chunkSize = chunkSize;
+    }
+
+    public Result importRooms(Reader input, Format format, Listener listener) throws IOException, SQLException {
+        RowReader rows = format == Format.JSON ? new JsonRowReader(input) : new CsvRowReader(input);
+        RoomCatalog catalog = dbHandler.getRoomCatalog();
+        Set<Integer> seen = new HashSet<>();
+        List<String> errors = new ArrayList<>();
+        List<Room> chunk = new ArrayList<>(chunkSize);
+        List<Integer> chunkRows = new ArrayList<>(chunkSize);
+        int rowsRead = 0;
+        int imported = 0;
+        Row next;
+        while ((next = rows.next()) != null) {
+            rowsRead++;
+            int row = next.number;
+            try {
+                if (next.error != null) {
+                    throw new IllegalArgumentException(next.error);
+                }
+                Room room = toRoom(next.fields);
+                if (!seen.add(room.getRoomNumber())) {
+                    throw new IllegalArgumentException("room " + room.getRoomNumber() + " appears more than once in the file");
+                }
+                if (catalog.get(room.getRoomNumber()) != null) {
+                    throw new IllegalArgumentException("room " + room.getRoomNumber() + " already exists");
+                }
+                chunk.add(room);
+                chunkRows.add(row);
+            } catch (IllegalArgumentException e) {
+                fail(errors, listener, row, e.getMessage());
+            }
+            if (chunk.size() >= chunkSize) {
+                imported += writeChunk(chunk, chunkRows, errors, listener);
+                listener.progress(rowsRead, imported);
+            }
+        }
+        imported += writeChunk(chunk, chunkRows, errors, listener);
+        listener.progress(rowsRead, imported);
+        return new Result(rowsRead, imported, errors);
+    }
+
+    private int writeChunk(List<Room> chunk, List<Integer> chunkRows, List<String> errors, Listener listener) throws SQLException {
+        if (chunk.isEmpty()) {
+            return 0;
+        }
+        int[] counts = dbHandler.inWriteTransaction(() -> {
+            try (PreparedStatement stmt = dbHandler.prepareStatement(INSERT_QUERY)) {
+                for (Room room : chunk) {
+                    stmt.setInt(1, room.getRoomNumber());
+                    stmt.setString(2, room.getRoomType().getTypeName());
+                    stmt.setDouble(3, room.getPricePerNight());
+                    stmt.setInt(4, room.isAvailable() ? 1 : 0);
+                    stmt.setString(5, room.getLocation());
+                    stmt.setString(6, room.getAmenities());
+                    stmt.addBatch();
+                }
+                int[] result = stmt.executeBatch();
+                for (int i = 0; i < result.length; i++) {
+                    if (result[i] > 0) {
+                        dbHandler.roomSaved(chunk.get(i));
+                    }
+                }
+                return result;
+            }
+        });
+        int written = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                written++;
+            } else {
+                fail(errors, listener, chunkRows.get(i), "room " + chunk.get(i).getRoomNumber() + " already exists");
+            }
+        }
+        chunk.clear();
+        chunkRows.clear();
+        return written;
+    }
+
+    private static void fail(List<String> errors, Listener listener, int row, String message) {
+        errors.add("Row " + row + ": " + message);
+        listener.rowFailed(row, message);
+    }
+
+    private Room toRoom(Map<String, String> fields) {
+        int roomNumber = parseInt(required(fields, "room_number"), "room_number");
+        if (roomNumber <= 0) {
+            throw new IllegalArgumentException("room_number must be positive");
+        }
+        String typeName = required(fields, "type_name");
+        double price = parseDouble(required(fields, "price_per_night"), "price_per_night");
+        if (price <= 0 || Double.isNaN(price) || Double.isInfinite(price)) {
+            throw new IllegalArgumentException("price_per_night must be a positive number");
+        }
+        String available = fields.get("is_available");
+        boolean isAvailable = available == null || available.isBlank() || parseBoolean(available);
+        String location = fields.getOrDefault("location", "Main Building");
+        String amenities = fields.getOrDefault("amenities", "");
+        RoomType roomType = new RoomType(typeName, "Standard", price, 2, false);
+        return Room.load(roomNumber, roomType, price, isAvailable, location, amenities, dbHandler);
+    }
+
+    private static String required(Map<String, String> fields, String name) {
+        String value = fields.get(name);
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException(name + " is missing");
+        }
+        return value.trim();
+    }
+
+    private static int parseInt(String value, String name) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a whole number: " + value);
+        }
+    }
+
+    private static double parseDouble(String value, String name) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number: " + value);
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "1", "true", "yes":
+                return true;
+            case "0", "false", "no":
+                return false;
+            default:
+                throw new IllegalArgumentException("is_available must be true or false: " + value);
+        }
+    }
+
+    private static String normalizeKey(String key) {
+        String normalized = key.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+        switch (normalized) {
+            case "room", "number", "roomnumber":
+                return "room_number";
+            case "type", "typename":
+                return "type_name";
+            case "price", "pricepernight":
+                return "price_per_night";
+            case "available", "isavailable":
+                return "is_available";
+            default:
+                return normalized;
+        }
+    }
+
+    private static class Row {
+        private final int number;
+        private final Map<String, String> fields;
+        private final String error;
+
+        private Row(int number, Map<String, String> fields, String error) {
+            this.number = number;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+
+    private interface RowReader {
+        // Next row, or null at the end of the input.
+        Row next() throws IOException;
+    }
+
+    // Header line first, RFC 4180 quoting, one record per line.
+    private static class CsvRowReader implements RowReader {
+        private final BufferedReader reader;
+        private List<String> header;
+        private int line;
+
+        private CsvRowReader(Reader input) {
+            this.reader = input instanceof BufferedReader ? (BufferedReader) input : new BufferedReader(input);
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (header == null) {
+                String first = nextNonBlankLine();
+                if (first == null) {
+                    return null;
+                }
+                header = new ArrayList<>();
+                for (String column : split(first.replace("\uFEFF", ""))) {
+                    header.add(normalizeKey(column));
+                }
+            }
+            String text = nextNonBlankLine();
+            if (text == null) {
+                return null;
+            }
+            List<String> values = split(text);
+            if (values.size() != header.size()) {
+                return new Row(line, null, "expected " + header.size() + " columns but found " + values.size());
+            }
+            Map<String, String> fields = new LinkedHashMap<>();
+            for (int i = 0; i < values.size(); i++) {
+                fields.put(header.get(i), values.get(i));
+            }
+            return new Row(line, fields, null);
+        }
+
+        private String nextNonBlankLine() throws IOException {
+            String text;
+            while ((text = reader.readLine()) != null) {
+                line++;
+                if (!text.isBlank()) {
+                    return text;
+                }
+            }
+            return null;
+        }
+
+        private static List<String> split(String text) {
+            List<String> values = new ArrayList<>();
+            StringBuilder value = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        value.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        value.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    values.add(value.toString().trim());
+                    value.setLength(0);
+                } else {
+                    value.append(c);
+                }
+            }
+            values.add(value.toString().trim());
+            return values;
+        }
+    }
+
+    // A top-level array of flat objects, read one object at a time.
+    private static class JsonRowReader implements RowReader {
+        // Returned by readValue for an object or array; no string can be mistaken for it.
+        private static final Object NESTED = new Object();
+
+        private final Reader reader;
+        private int peeked = -2;
+        private int row;
+        private int offset;
+        private boolean started;
+        private boolean finished;
+
+        private JsonRowReader(Reader input) {
+            this.reader = input instanceof BufferedReader ? input : new BufferedReader(input);
+        }
+
+        @Override
+        public Row next() throws IOException {
+            if (finished) {
+                return null;
+            }
+            if (!started) {
+                started = true;
+                expect('[');
+                if (peekToken() == ']') {
+                    read();
+                    return end();
+                }
+            } else {
+                int c = readToken();
+                if (c == ']') {
+                    return end();
+                }
+                if (c != ',') {
+                    throw syntax("expected ',' or ']'");
+                }
+            }
+            row++;
+            return readObject();
+        }
+
+        private Row end() throws IOException {
+            finished = true;
+            if (readToken() != -1) {
+                throw syntax("unexpected content after the room array");
+            }
+            return null;
+        }
+
+        private Row readObject() throws IOException {
+            expect('{');
+            Map<String, String> fields = new LinkedHashMap<>();
+            String error = null;
+            if (peekToken() == '}') {
+                read();
+                return new Row(row, fields, null);
+            }
+            while (true) {
+                if (readToken() != '"') {
+                    throw syntax("expected a field name");
+                }
+                String key = normalizeKey(readString());
+                expect(':');
+                Object value = readValue();
+                if (value == NESTED) {
+                    error = "field " + key + " holds a nested value";
+                } else {
+                    fields.put(key, (String) value);
+                }
+                int c = readToken();
+                if (c == '}') {
+                    return new Row(row, fields, error);
+                }
+                if (c != ',') {
+                    throw syntax("expected ',' or '}'");
+                }
+            }
+        }
+
+        private Object readValue() throws IOException {
+            int c = readToken();
+            switch (c) {
+                case '"':
+                    return readString();
+                case '{':
+                case '[':
+                    skipNested(c);
+                    return NESTED;
+                default:
+                    StringBuilder literal = new StringBuilder().append((char) c);
+                    while (true) {
+                        int next = peek();
+                        if (next == -1 || next == ',' || next == '}' || next == ']' || Character.isWhitespace(next)) {
+                            break;
+                        }
+                        literal.append((char) read());
+                    }
+                    String text = literal.toString();
+                    if (text.equals("null")) {
+                        return null;
+                    }
+                    if (text.equals("true") || text.equals("false") || text.matches("-?\\d+(\\.\\d+)?([eE][+-]?\\d+)?")) {
+                        return text;
+                    }
+                    throw syntax("unexpected value " + text);
+            }
+        }
+
+        private void skipNested(int open) throws IOException {
+            int depth = 1;
+            while (depth > 0) {
+                int c = read();
+                if (c == -1) {
+                    throw syntax("unterminated " + (char) open);
+                } else if (c == '"') {
+                    readString();
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            }
+        }
+
+        private String readString() throws IOException {
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                int c = read();
+                if (c == -1) {
+                    throw syntax("unterminated string");
+                }
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append((char) c);
+                    continue;
+                }
+                int escaped = read();
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append((char) escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        char[] hex = new char[4];
+                        for (int i = 0; i < 4; i++) {
+                            int h = read();
+                            if (h == -1) {
+                                throw syntax("unterminated escape");
+                            }
+                            hex[i] = (char) h;
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(new String(hex), 16));
+                        } catch (NumberFormatException e) {
+                            throw syntax("bad unicode escape");
+                        }
+                    }
+                    default -> throw syntax("bad escape");
+                }
+            }
+        }
+
+        private void expect(char expected) throws IOException {
+            if (readToken() != expected) {
+                throw syntax("expected '" + expected + "'");
+            }
+        }
+
+        private int peekToken() throws IOException {
+            while (peek() != -1 && Character.isWhitespace(peek())) {
+                read();
+            }
+            return peek();
+        }
+
+        private int readToken() throws IOException {
+            peekToken();
+            return read();
+        }
+
+        private int peek() throws IOException {
+            if (peeked < -1) {
+                peeked = reader.read();
+            }
+            return peeked;
+        }
+
+        private int read() throws IOException {
+            int c = peek();
+            peeked = -2;
+            if (c != -1) {
+                offset++;
+            }
+            return c;
+        }
+
+        private IOException syntax(String message) {
+            return new IOException("Invalid JSON at character " + offset + ": " + message);
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package system;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings the database schema up to date on startup. The applied version is
+ * kept in PRAGMA user_version and every pending migration runs in its own
+ * transaction, so a database is never left half way between two versions.
+ */
+public class SchemaMigrator {
+    private static final List<Migration> MIGRATIONS = List.of(
+            new Migration(1, "create schema",
+                    """
+                    CREATE TABLE IF NOT EXISTS users (
+                        id INTEGER PRIMARY KEY,
+                        name TEXT NOT NULL,
+                        username TEXT NOT NULL UNIQUE,
+                        password TEXT NOT NULL,
+                        email TEXT NOT NULL,
+                        role TEXT NOT NULL CHECK(role IN ('CUSTOMER', 'ADMIN', 'RECEPTIONIST')),
+                        national_id TEXT,
+                        address TEXT,
+                        phone_number TEXT,
+                        registration_date TEXT,
+                        admin_level INTEGER,
+                        department TEXT,
+                        is_super_admin INTEGER,
+                        employee_id INTEGER,
+                        branch TEXT,
+                        shift TEXT
+                    )""",
+                    """
+                    CREATE TABLE IF NOT EXISTS rooms (
+                        room_number INTEGER PRIMARY KEY,
+                        type_name TEXT NOT NULL,
+                        price_per_night REAL NOT NULL,
+                        is_available INTEGER NOT NULL CHECK(is_available IN (0, 1)),
+                        location TEXT,
+                        amenities TEXT
+                    )""",
+                    """
+                    CREATE TABLE IF NOT EXISTS bookings (
+                        booking_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        customer_id INTEGER NOT NULL,
+                        room_number INTEGER NOT NULL,
+                        check_in_date TEXT NOT NULL,
+                        check_out_date TEXT NOT NULL,
+                        status TEXT NOT NULL CHECK(status IN ('PENDING', 'CONFIRMED', 'CANCELLED', 'COMPLETED')),
+                        total_cost REAL NOT NULL,
+                        booking_date TEXT NOT NULL,
+                        FOREIGN KEY(customer_id) REFERENCES users(id),
+                        FOREIGN KEY(room_number) REFERENCES rooms(room_number)
+                    )""",
+                    """
+                    CREATE TABLE IF NOT EXISTS payments (
+                        payment_id INTEGER PRIMARY KEY,
+                        booking_id INTEGER NOT NULL,
+                        amount REAL NOT NULL,
+                        payment_method TEXT NOT NULL CHECK(payment_method IN ('CARD', 'CASH')),
+                        payment_date TEXT NOT NULL,
+                        FOREIGN KEY(booking_id) REFERENCES bookings(booking_id)
+                    )"""),
+            new Migration(2, "access path indexes",
+                    "CREATE INDEX IF NOT EXISTS idx_bookings_room_status_dates ON bookings (room_number, status, check_in_date, check_out_date)",
+                    "CREATE INDEX IF NOT EXISTS idx_bookings_customer_status ON bookings (customer_id, status)",
+                    "CREATE INDEX IF NOT EXISTS idx_users_role ON users (role)",
+                    "CREATE INDEX IF NOT EXISTS idx_payments_booking ON payments (booking_id)"),
+            new Migration(3, "group bookings",
+                    """
+                    CREATE TABLE IF NOT EXISTS booking_groups (
+                        group_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        customer_id INTEGER NOT NULL,
+                        check_in_date TEXT NOT NULL,
+                        check_out_date TEXT NOT NULL,
+                        room_count INTEGER NOT NULL,
+                        created_date TEXT NOT NULL,
+                        FOREIGN KEY(customer_id) REFERENCES users(id)
+                    )""",
+                    "ALTER TABLE bookings ADD COLUMN group_id INTEGER REFERENCES booking_groups(group_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_bookings_group ON bookings (group_id)"),
+            // Day columns hold epoch days. The triggers fill them in for writers that only set the text dates.
+            new Migration(4, "epoch-day booking columns",
+                    "ALTER TABLE bookings ADD COLUMN check_in_day INTEGER",
+                    "ALTER TABLE bookings ADD COLUMN check_out_day INTEGER",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS bookings_days_on_insert AFTER INSERT ON bookings
+                    WHEN NEW.check_in_day IS NULL OR NEW.check_out_day IS NULL
+                    BEGIN
+                        UPDATE bookings SET check_in_day = CAST(julianday(NEW.check_in_date) - 2440587.5 AS INTEGER),
+                                            check_out_day = CAST(julianday(NEW.check_out_date) - 2440587.5 AS INTEGER)
+                        WHERE booking_id = NEW.booking_id;
+                    END""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS bookings_days_on_update AFTER UPDATE OF check_in_date, check_out_date ON bookings
+                    BEGIN
+                        UPDATE bookings SET check_in_day = CAST(julianday(NEW.check_in_date) - 2440587.5 AS INTEGER),
+                                            check_out_day = CAST(julianday(NEW.check_out_date) - 2440587.5 AS INTEGER)
+                        WHERE booking_id = NEW.booking_id;
+                    END"""),
+            new Migration(5, "backfill epoch-day booking columns", SchemaMigrator::backfillBookingDays,
+                    "CREATE INDEX IF NOT EXISTS idx_bookings_room_status_days ON bookings (room_number, status, check_in_day, check_out_day)",
+                    "DROP INDEX IF EXISTS idx_bookings_room_status_dates"),
+            // The booking report pages along these; booking_id breaks ties so every key is unique.
+            new Migration(6, "booking report sort indexes",
+                    "CREATE INDEX IF NOT EXISTS idx_bookings_report_room ON bookings (room_number, booking_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_bookings_report_check_in ON bookings (check_in_day, booking_id)",
+                    "CREATE INDEX IF NOT EXISTS idx_bookings_report_check_out ON bookings (check_out_day, booking_id)"),
+            // Rows whose day cannot be computed are skipped: OR IGNORE drops the NOT NULL violation
+            // and the UPDATE then matches nothing.
+            new Migration(7, "reporting rollups",
+                    """
+                    CREATE TABLE IF NOT EXISTS booking_daily_rollup (
+                        day INTEGER NOT NULL,
+                        room_type TEXT NOT NULL,
+                        status TEXT NOT NULL,
+                        bookings INTEGER NOT NULL DEFAULT 0,
+                        nights INTEGER NOT NULL DEFAULT 0,
+                        revenue REAL NOT NULL DEFAULT 0,
+                        PRIMARY KEY (day, room_type, status)
+                    ) WITHOUT ROWID""",
+                    """
+                    CREATE TABLE IF NOT EXISTS payment_daily_rollup (
+                        day INTEGER NOT NULL,
+                        payment_method TEXT NOT NULL,
+                        payments INTEGER NOT NULL DEFAULT 0,
+                        amount REAL NOT NULL DEFAULT 0,
+                        PRIMARY KEY (day, payment_method)
+                    ) WITHOUT ROWID""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS booking_rollup_on_insert AFTER INSERT ON bookings
+                    BEGIN
+                        INSERT OR IGNORE INTO booking_daily_rollup (day, room_type, status)
+                        VALUES (COALESCE(NEW.check_in_day, CAST(julianday(NEW.check_in_date) - 2440587.5 AS INTEGER)),
+                                COALESCE((SELECT type_name FROM rooms WHERE room_number = NEW.room_number), 'UNKNOWN'), NEW.status);
+                        UPDATE booking_daily_rollup
+                        SET bookings = bookings + 1, nights = nights + COALESCE(NEW.check_out_day - NEW.check_in_day, CAST(julianday(NEW.check_out_date) - julianday(NEW.check_in_date) AS INTEGER), 0),
+                            revenue = revenue + NEW.total_cost
+                        WHERE day = COALESCE(NEW.check_in_day, CAST(julianday(NEW.check_in_date) - 2440587.5 AS INTEGER))
+                          AND room_type = COALESCE((SELECT type_name FROM rooms WHERE room_number = NEW.room_number), 'UNKNOWN') AND status = NEW.status;
+                    END""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS booking_rollup_on_update
+                    AFTER UPDATE OF room_number, check_in_day, check_out_day, status, total_cost ON bookings
+                    BEGIN
+                        UPDATE booking_daily_rollup
+                        SET bookings = bookings - 1, nights = nights - COALESCE(OLD.check_out_day - OLD.check_in_day, CAST(julianday(OLD.check_out_date) - julianday(OLD.check_in_date) AS INTEGER), 0),
+                            revenue = revenue - OLD.total_cost
+                        WHERE day = COALESCE(OLD.check_in_day, CAST(julianday(OLD.check_in_date) - 2440587.5 AS INTEGER))
+                          AND room_type = COALESCE((SELECT type_name FROM rooms WHERE room_number = OLD.room_number), 'UNKNOWN') AND status = OLD.status;
+                        INSERT OR IGNORE INTO booking_daily_rollup (day, room_type, status)
+                        VALUES (COALESCE(NEW.check_in_day, CAST(julianday(NEW.check_in_date) - 2440587.5 AS INTEGER)),
+                                COALESCE((SELECT type_name FROM rooms WHERE room_number = NEW.room_number), 'UNKNOWN'), NEW.status);
+                        UPDATE booking_daily_rollup
+                        SET bookings = bookings + 1, nights = nights + COALESCE(NEW.check_out_day - NEW.check_in_day, CAST(julianday(NEW.check_out_date) - julianday(NEW.check_in_date) AS INTEGER), 0),
+                            revenue = revenue + NEW.total_cost
+                        WHERE day = COALESCE(NEW.check_in_day, CAST(julianday(NEW.check_in_date) - 2440587.5 AS INTEGER))
+                          AND room_type = COALESCE((SELECT type_name FROM rooms WHERE room_number = NEW.room_number), 'UNKNOWN') AND status = NEW.status;
+                    END""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS booking_rollup_on_delete AFTER DELETE ON bookings
+                    BEGIN
+                        UPDATE booking_daily_rollup
+                        SET bookings = bookings - 1, nights = nights - COALESCE(OLD.check_out_day - OLD.check_in_day, CAST(julianday(OLD.check_out_date) - julianday(OLD.check_in_date) AS INTEGER), 0),
+                            revenue = revenue - OLD.total_cost
+                        WHERE day = COALESCE(OLD.check_in_day, CAST(julianday(OLD.check_in_date) - 2440587.5 AS INTEGER))
+                          AND room_type = COALESCE((SELECT type_name FROM rooms WHERE room_number = OLD.room_number), 'UNKNOWN') AND status = OLD.status;
+                    END""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS payment_rollup_on_insert AFTER INSERT ON payments
+                    BEGIN
+                        INSERT OR IGNORE INTO payment_daily_rollup (day, payment_method) VALUES (CAST(julianday(NEW.payment_date) - 2440587.5 AS INTEGER), NEW.payment_method);
+                        UPDATE payment_daily_rollup SET payments = payments + 1, amount = amount + NEW.amount
+                        WHERE day = CAST(julianday(NEW.payment_date) - 2440587.5 AS INTEGER) AND payment_method = NEW.payment_method;
+                    END""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS payment_rollup_on_delete AFTER DELETE ON payments
+                    BEGIN
+                        UPDATE payment_daily_rollup SET payments = payments - 1, amount = amount - OLD.amount
+                        WHERE day = CAST(julianday(OLD.payment_date) - 2440587.5 AS INTEGER) AND payment_method = OLD.payment_method;
+                    END""",
+                    ReportRollups.POPULATE_BOOKING_ROLLUP,
+                    ReportRollups.POPULATE_PAYMENT_ROLLUP),
+            new Migration(8, "move booking rollups on room type change", roomTypeRollupTrigger()),
+            new Migration(9, "payment intents",
+                    """
+                    CREATE TABLE IF NOT EXISTS payment_intents (
+                        idempotency_key TEXT PRIMARY KEY,
+                        booking_id INTEGER NOT NULL,
+                        amount REAL NOT NULL,
+                        payment_method TEXT NOT NULL,
+                        status TEXT NOT NULL CHECK(status IN ('COMPLETED', 'FAILED')),
+                        payment_id INTEGER,
+                        failure_reason TEXT,
+                        settled_at TEXT NOT NULL,
+                        FOREIGN KEY(booking_id) REFERENCES bookings(booking_id),
+                        FOREIGN KEY(payment_id) REFERENCES payments(payment_id)
+                    )""",
+                    "CREATE INDEX IF NOT EXISTS idx_payment_intents_booking ON payment_intents (booking_id)"),
+            // Existing payments are copied into the ledger by PaymentLedger when it starts.
+            new Migration(10, "payment ledger",
+                    """
+                    CREATE TABLE IF NOT EXISTS payment_ledger (
+                        entry_id INTEGER PRIMARY KEY AUTOINCREMENT,
+                        booking_id INTEGER NOT NULL,
+                        entry_type TEXT NOT NULL CHECK(entry_type IN ('CARD', 'CASH', 'REFUND')),
+                        amount REAL NOT NULL,
+                        balance REAL NOT NULL,
+                        payment_id INTEGER,
+                        reference TEXT,
+                        recorded_at TEXT NOT NULL,
+                        FOREIGN KEY(booking_id) REFERENCES bookings(booking_id),
+                        FOREIGN KEY(payment_id) REFERENCES payments(payment_id)
+                    )""",
+                    "CREATE INDEX IF NOT EXISTS idx_payment_ledger_booking ON payment_ledger (booking_id, entry_id)",
+                    "CREATE UNIQUE INDEX IF NOT EXISTS idx_payment_ledger_payment ON payment_ledger (payment_id) WHERE payment_id IS NOT NULL",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS payment_ledger_no_update BEFORE UPDATE ON payment_ledger
+                    BEGIN
+                        SELECT RAISE(ABORT, 'payment_ledger is append-only');
+                    END""",
+                    """
+                    CREATE TRIGGER IF NOT EXISTS payment_ledger_no_delete BEFORE DELETE ON payment_ledger
+                    BEGIN
+                        SELECT RAISE(ABORT, 'payment_ledger is append-only');
+                    END""")
+    );
+    private static final int BACKFILL_CHUNK_SIZE = 5000;
+
+    // Statements on the login, dashboard and booking paths whose plans are logged after migrating.
+    private static final String[][] HOT_STATEMENTS = {
+            {"login", "SELECT * FROM users WHERE username = ?"},
+            {"customer pending bookings", "SELECT booking_id, room_number, check_in_day, check_out_day, total_cost FROM bookings WHERE customer_id = ? AND status = 'PENDING'"},
+            {"customer bookings", "SELECT b.booking_id, u.name FROM bookings b LEFT JOIN users u ON u.id = b.customer_id AND u.role = 'CUSTOMER' WHERE b.customer_id = ?"},
+            {"room overlap", "SELECT 1 FROM bookings WHERE room_number = ? AND status IN ('PENDING', 'CONFIRMED') AND check_in_day <= ? AND check_out_day >= ? LIMIT 1"},
+            {"all customers", "SELECT * FROM users WHERE role = 'CUSTOMER'"},
+            {"booking payments", "SELECT payment_id, amount FROM payments WHERE booking_id = ?"},
+            {"report page", "SELECT b.booking_id, u.name FROM bookings b LEFT JOIN users u ON u.id = b.customer_id WHERE b.check_in_day IS NOT NULL AND (b.check_in_day, b.booking_id) > (?, ?) ORDER BY b.check_in_day, b.booking_id LIMIT 100"},
+            {"report rollup", "SELECT room_type, status, SUM(bookings) FROM booking_daily_rollup WHERE day >= ? AND day < ? GROUP BY room_type, status"}
+    };
+
+    public static int latestVersion() {
+        return MIGRATIONS.get(MIGRATIONS.size() - 1).version;
+    }
+
+    // Applies pending migrations on the writer connection and returns how many ran.
+    public int migrate(Connection connection) throws SQLException {
+        int current = userVersion(connection);
+        int applied = 0;
+        for (Migration migration : MIGRATIONS) {
+            if (migration.version <= current) {
+                continue;
+            }
+            apply(connection, migration);
+            System.out.println("Applied schema migration " + migration.version + ": " + migration.description);
+            applied++;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(applied > 0 ? "ANALYZE" : "PRAGMA optimize");
+        }
+        return applied;
+    }
+
+    public void logQueryPlans(Connection connection) {
+        for (String[] statement : HOT_STATEMENTS) {
+            try {
+                List<String> plan = explain(connection, statement[1]);
+                boolean scans = plan.stream().anyMatch(step -> step.startsWith("SCAN") && !step.contains("USING"));
+                System.out.println("Query plan [" + statement[0] + "]" + (scans ? " (full scan)" : "") + ": "
+                        + String.join("; ", plan));
+            } catch (SQLException e) {
+                System.err.println("Could not explain " + statement[0] + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static List<String> explain(Connection connection, String sql) throws SQLException {
+        List<String> plan = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                plan.add(rs.getString("detail"));
+            }
+        }
+        return plan;
+    }
+
+    private static int userVersion(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void apply(Connection connection, Migration migration) throws SQLException {
+        if (migration.backfill != null) {
+            migration.backfill.run(connection);
+        }
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            for (String sql : migration.statements) {
+                stmt.execute(sql);
+            }
+            stmt.execute("PRAGMA user_version = " + migration.version);
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Schema migration " + migration.version + " failed: " + e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    /**
+     * Converts the text stay dates of rows that have no day columns yet, a
+     * chunk per transaction so the writer is never held for long. Rows are
+     * visited in booking_id order, which makes an interrupted run resumable.
+     * Dates that do not parse leave the row's day columns empty.
+     */
+    private static void backfillBookingDays(Connection connection) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        int lastId = 0;
+        int filled = 0;
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT booking_id, check_in_date, check_out_date FROM bookings " +
+                        "WHERE booking_id > ? AND (check_in_day IS NULL OR check_out_day IS NULL) ORDER BY booking_id LIMIT " + BACKFILL_CHUNK_SIZE);
+             PreparedStatement update = connection.prepareStatement(
+                     "UPDATE bookings SET check_in_day = ?, check_out_day = ? WHERE booking_id = ?")) {
+            connection.setAutoCommit(false);
+            while (true) {
+                int rows = 0;
+                select.setInt(1, lastId);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        lastId = rs.getInt(1);
+                        try {
+                            update.setLong(1, AvailabilityIndex.toEpochDay(rs.getString(2)));
+                            update.setLong(2, AvailabilityIndex.toEpochDay(rs.getString(3)));
+                            update.setInt(3, lastId);
+                            update.addBatch();
+                            filled++;
+                        } catch (DateTimeParseException | NullPointerException e) {
+                            System.err.println("Booking " + lastId + " has unreadable dates: " + rs.getString(2) + " / " + rs.getString(3));
+                        }
+                    }
+                }
+                update.executeBatch();
+                connection.commit();
+                if (rows < BACKFILL_CHUNK_SIZE) {
+                    break;
+                }
+            }
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+        System.out.println("Backfilled epoch-day dates for " + filled + " bookings");
+    }
+
+    // The booking rollup triggers file a booking under its room's current type, so when a room changes
+    // type the rollup rows of its bookings are moved from the old type to the new one.
+    private static String roomTypeRollupTrigger() {
+        String roomBookings = """
+                FROM bookings b WHERE b.room_number = NEW.room_number AND b.status = booking_daily_rollup.status
+                  AND COALESCE(b.check_in_day, CAST(julianday(b.check_in_date) - 2440587.5 AS INTEGER)) = booking_daily_rollup.day""";
+        String move = """
+                UPDATE booking_daily_rollup
+                SET bookings = bookings %1$s (SELECT COUNT(*) %2$s),
+                    nights = nights %1$s (SELECT COALESCE(SUM(COALESCE(b.check_out_day - b.check_in_day, CAST(julianday(b.check_out_date) - julianday(b.check_in_date) AS INTEGER), 0)), 0) %2$s),
+                    revenue = revenue %1$s (SELECT COALESCE(SUM(b.total_cost), 0) %2$s)
+                WHERE room_type = %3$s AND EXISTS (SELECT 1 %2$s);
+                """;
+        return """
+                CREATE TRIGGER IF NOT EXISTS booking_rollup_on_room_type AFTER UPDATE OF type_name ON rooms
+                WHEN OLD.type_name IS NOT NEW.type_name
+                BEGIN
+                INSERT OR IGNORE INTO booking_daily_rollup (day, room_type, status)
+                SELECT DISTINCT COALESCE(b.check_in_day, CAST(julianday(b.check_in_date) - 2440587.5 AS INTEGER)), NEW.type_name, b.status
+                FROM bookings b WHERE b.room_number = NEW.room_number;
+                """
+                + move.formatted("+", roomBookings, "NEW.type_name")
+                + move.formatted("-", roomBookings, "OLD.type_name")
+                + """
+                DELETE FROM booking_daily_rollup WHERE room_type = OLD.type_name AND bookings = 0 AND EXISTS (SELECT 1 %s);
+                END""".formatted(roomBookings);
+    }
+
+    @FunctionalInterface
+    private interface Backfill {
+        void run(Connection connection) throws SQLException;
+    }
+
+    private static class Migration {
+        private final int version;
+        private final String description;
+        private final Backfill backfill;
+        private final String[] statements;
+
+        private Migration(int version, String description, String... statements) {
+            this(version, description, null, statements);
+        }
+
+        // The backfill runs in its own transactions before the statements and the version bump.
+        private Migration(int version, String description, Backfill backfill, String... statements) {
+            this.version = version;
+            this.description = description;
+            this.backfill = backfill;
+            this.statements = statements;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package system;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Logs every statement that runs longer than a threshold, with its bound
+ * parameters, the calling method and SQLite's query plan. The plan is read
+ * on the statement's own connection right after the slow execution, which
+ * is the only point where that connection is safe to use. Formatting and
+ * file writes happen on a background thread, and the file rolls over at a
+ * size limit. Parameters bound to users.password are never written.
+ */
+public class SlowQueryLog {
+    private static final int QUEUE_SIZE = 1024;
+    private static final int KEEP_FILES = 3;
+    private static final int MAX_CACHED_SQL = 4096;
+    private static final Set<String> INFRASTRUCTURE = Set.of(
+            StatementCache.class.getName(), DatabaseHandler.class.getName(), SlowQueryLog.class.getName());
+    private static final Pattern ASSIGNED_PASSWORD = Pattern.compile("\\bpassword\\s*=\\s*\\?", Pattern.CASE_INSENSITIVE);
+    private static final Pattern INSERT_COLUMNS = Pattern.compile("^\\s*INSERT\\b[^(]*\\(([^)]*)\\)", Pattern.CASE_INSENSITIVE);
+
+    private final long thresholdNanos;
+    private final Path file;
+    private final long maxBytes;
+    private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>(QUEUE_SIZE);
+    private final Map<String, boolean[]> redactions = new ConcurrentHashMap<>();
+    private final AtomicLong logged = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public SlowQueryLog(long thresholdMillis, Path file, long maxBytes) {
+        this.thresholdNanos = TimeUnit.MILLISECONDS.toNanos(thresholdMillis);
+        this.file = file;
+        this.maxBytes = maxBytes;
+        this.writer = new Thread(this::writeLoop, "slow-query-log");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public boolean isSlow(long nanos) {
+        return nanos >= thresholdNanos;
+    }
+
+    // Called on the executing thread, which still owns the connection.
+    public void record(Connection connection, String sql, Object[] parameters, long nanos, boolean failed) {
+        String caller = caller();
+        String plan = plan(connection, sql);
+        String entry = format(sql, redact(sql, parameters), nanos, failed, caller, plan);
+        if (queue.offer(entry)) {
+            logged.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public long getLoggedCount() {
+        return logged.get();
+    }
+
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Writes what is queued, then stops the writer.
+    public void shutdown() {
+        running = false;
+        writer.interrupt();
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (logged.get() > 0 || dropped.get() > 0) {
+            System.out.println("Slow query log: " + logged.get() + " statements written to " + file
+                    + (dropped.get() > 0 ? ", " + dropped.get() + " dropped" : ""));
+        }
+    }
+
+    private static String caller() {
+        Optional<StackWalker.StackFrame> frame = StackWalker.getInstance().walk(frames -> frames
+                .filter(f -> !INFRASTRUCTURE.contains(f.getClassName())
+                        && !f.getClassName().startsWith(StatementCache.class.getName() + "$")
+                        && !f.getClassName().startsWith("java.")
+                        && !f.getClassName().startsWith("jdk.")
+                        && !f.getClassName().startsWith("com.sun.proxy.")
+                        && !f.getClassName().contains("$Proxy"))
+                .findFirst());
+        if (frame.isEmpty()) {
+            return "unknown";
+        }
+        StackWalker.StackFrame f = frame.get();
+        String className = f.getClassName().substring(f.getClassName().lastIndexOf('.') + 1);
+        return className + "." + f.getMethodName() + ":" + f.getLineNumber();
+    }
+
+    private static String plan(Connection connection, String sql) {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement stmt = connection.prepareStatement("EXPLAIN QUERY PLAN " + sql);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                plan.append("    ").append(rs.getString("detail")).append(System.lineSeparator());
+            }
+        } catch (SQLException e) {
+            plan.append("    (no plan: ").append(e.getMessage()).append(')').append(System.lineSeparator());
+        }
+        return plan.toString();
+    }
+
+    // Works on the caller's copy of the parameters.
+    private Object[] redact(String sql, Object[] parameters) {
+        if (parameters == null) {
+            return new Object[0];
+        }
+        boolean[] secret = redactions.size() < MAX_CACHED_SQL
+                ? redactions.computeIfAbsent(sql, SlowQueryLog::passwordParameters) : passwordParameters(sql);
+        Object[] shown = parameters;
+        for (int i = 0; i < shown.length; i++) {
+            if (secret == null || (i < secret.length && secret[i])) {
+                shown[i] = "<redacted>";
+            }
+        }
+        return shown;
+    }
+
+    // Which 0-based parameters are bound to users.password; null means all of them, when it cannot tell.
+    private static boolean[] passwordParameters(String sql) {
+        String lower = sql.toLowerCase(Locale.ROOT);
+        if (!lower.contains("password") || !lower.contains("users")) {
+            return new boolean[0];
+        }
+        List<Integer> placeholders = new ArrayList<>();
+        for (int i = 0; i < sql.length(); i++) {
+            if (sql.charAt(i) == '?') {
+                placeholders.add(i);
+            }
+        }
+        boolean[] secret = new boolean[placeholders.size()];
+        boolean found = false;
+        Matcher insert = INSERT_COLUMNS.matcher(sql);
+        if (insert.find()) {
+            String[] columns = insert.group(1).split(",");
+            for (int i = 0; i < columns.length && i < secret.length; i++) {
+                if (columns[i].trim().equalsIgnoreCase("password")) {
+                    secret[i] = true;
+                    found = true;
+                }
+            }
+        }
+        Matcher assigned = ASSIGNED_PASSWORD.matcher(sql);
+        while (assigned.find()) {
+            int index = placeholders.indexOf(assigned.end() - 1);
+            if (index >= 0) {
+                secret[index] = true;
+                found = true;
+            }
+        }
+        return found ? secret : null;
+    }
+
+    private static String format(String sql, Object[] parameters, long nanos, boolean failed, String caller, String plan) {
+        StringBuilder entry = new StringBuilder();
+        entry.append(LocalDateTime.now()).append(String.format(Locale.ROOT, "  %.1f ms", nanos / 1e6))
+                .append(failed ? "  FAILED" : "").append("  ").append(caller).append(System.lineSeparator());
+        entry.append("  sql: ").append(sql.replaceAll("\\s+", " ").trim()).append(System.lineSeparator());
+        if (parameters.length > 0) {
+            entry.append("  parameters: ");
+            for (int i = 0; i < parameters.length; i++) {
+                entry.append(i == 0 ? "" : ", ").append(i + 1).append('=').append(parameters[i]);
+            }
+            entry.append(System.lineSeparator());
+        }
+        entry.append("  plan:").append(System.lineSeparator()).append(plan);
+        return entry.toString();
+    }
+
+    private void writeLoop() {
+        while (running || !queue.isEmpty()) {
+            String entry;
+            try {
+                entry = running ? queue.take() : queue.poll();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (entry == null) {
+                break;
+            }
+            List<String> batch = new ArrayList<>();
+            batch.add(entry);
+            queue.drainTo(batch);
+            try {
+                rollIfNeeded();
+                try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (String line : batch) {
+                        out.write(line);
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to write slow query log: " + e.getMessage());
+            }
+        }
+    }
+
+    // slow-queries.log becomes slow-queries.log.1, and so on; the oldest is dropped.
+    private void rollIfNeeded() throws IOException {
+        if (!Files.exists(file) || Files.size(file) < maxBytes) {
+            return;
+        }
+        for (int i = KEEP_FILES - 1; i >= 1; i--) {
+            Path older = rolled(i);
+            if (Files.exists(older)) {
+                Files.move(older, rolled(i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(file, rolled(1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private Path rolled(int generation) {
+        return file.resolveSibling(file.getFileName() + "." + generation);
+    }
+}
@@ -0,0 +1,95 @@
+package system;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * When each startup phase began and how long it took, measured from JVM
+ * launch. Phases run on different threads and may overlap. Only the first
+ * occurrence of a phase is kept, so a later reconnect does not overwrite
+ * the startup figures. The timeline is printed when the JVM exits.
+ */
+public final class StartupTimeline {
+    private static final long BUDGET_MS = Long.getLong("hotel.startup.budgetMs", 1500);
+    private static final long JVM_START = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private static final List<Entry> entries = new ArrayList<>();
+
+    static {
+        Thread hook = new Thread(StartupTimeline::report, "startup-timeline");
+        Runtime.getRuntime().addShutdownHook(hook);
+    }
+
+    public static final class Phase {
+        private final String name;
+        private final long startedAt = System.currentTimeMillis();
+        private final long startNanos = System.nanoTime();
+
+        private Phase(String name) {
+            this.name = name;
+        }
+
+        public void end() {
+            record(name, startedAt - JVM_START, (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final long offsetMs;
+        private final long durationMs;
+
+        private Entry(String name, long offsetMs, long durationMs) {
+            this.name = name;
+            this.offsetMs = offsetMs;
+            this.durationMs = durationMs;
+        }
+    }
+
+    private StartupTimeline() {
+    }
+
+    public static Phase start(String name) {
+        return new Phase(name);
+    }
+
+    // An instant in the timeline, e.g. the first paint.
+    public static void mark(String name) {
+        record(name, System.currentTimeMillis() - JVM_START, -1);
+    }
+
+    // Marks the login window's first paint and warns if it came later than the budget.
+    public static void firstPaint() {
+        long elapsed = System.currentTimeMillis() - JVM_START;
+        if (record("first paint", elapsed, -1) && elapsed > BUDGET_MS) {
+            System.err.println("Startup over budget: first paint after " + elapsed + " ms (budget " + BUDGET_MS + " ms)");
+        }
+    }
+
+    public static synchronized void report() {
+        if (entries.isEmpty()) {
+            return;
+        }
+        StringBuilder out = new StringBuilder("Startup timeline (ms since JVM start, budget " + BUDGET_MS + " ms):");
+        for (Entry entry : entries) {
+            String duration = entry.durationMs >= 0 ? entry.durationMs + " ms" : "";
+            out.append(String.format("%n  %6d  %9s  %s", entry.offsetMs, duration, entry.name));
+        }
+        System.out.println(out);
+    }
+
+    private static synchronized boolean record(String name, long offsetMs, long durationMs) {
+        for (Entry entry : entries) {
+            if (entry.name.equals(name)) {
+                return false;
+            }
+        }
+        Entry entry = new Entry(name, offsetMs, durationMs);
+        int i = entries.size();
+        while (i > 0 && entries.get(i - 1).offsetMs > offsetMs) {
+            i--;
+        }
+        entries.add(i, entry);
+        return true;
+    }
+}
@@ -0,0 +1,384 @@
+package system;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Bounded LRU cache of prepared statements for one connection, keyed by SQL
+ * text. Callers get a handle whose close() hands the compiled statement back
+ * to the cache instead of finalizing it, so the usual try-with-resources
+ * pattern keeps working unchanged. With {@link StatementMetrics}, every
+ * execute call on a handle is timed against its SQL's entry; with a
+ * {@link SlowQueryLog}, handles also keep their bound parameters so a slow
+ * execution can be logged with them. Generated keys are read under the
+ * execute lock, together with the insert that produced them, and a query
+ * keeps holding it until its result set is closed, so its rows are stepped
+ * under the lock too.
+ */
+public class StatementCache {
+    private final Connection connection;
+    private final int capacity;
+    private final Lock executeLock;
+    private final StatementMetrics metrics;
+    private final SlowQueryLog slowQueryLog;
+    private final LinkedHashMap<String, Deque<PreparedStatement>> idle = new LinkedHashMap<>(16, 0.75f, true);
+    private int idleCount;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public StatementCache(Connection connection, int capacity) {
+        this(connection, capacity, null, null, null);
+    }
+
+    // With an execute lock, every execute call on a handle runs while holding it; metrics and log may be null.
+    public StatementCache(Connection connection, int capacity, Lock executeLock, StatementMetrics metrics,
+                          SlowQueryLog slowQueryLog) {
+        this.connection = connection;
+        this.capacity = capacity;
+        this.executeLock = executeLock;
+        this.metrics = metrics;
+        this.slowQueryLog = slowQueryLog;
+    }
+
+    public PreparedStatement prepare(String sql) throws SQLException {
+        return prepare(sql, java.sql.Statement.NO_GENERATED_KEYS);
+    }
+
+    // onClose runs once the handle is closed and its statement is back in the cache.
+    public PreparedStatement prepare(String sql, Runnable onClose) throws SQLException {
+        return prepare(sql, java.sql.Statement.NO_GENERATED_KEYS, onClose);
+    }
+
+    public PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        return prepare(sql, autoGeneratedKeys, null);
+    }
+
+    private PreparedStatement prepare(String sql, int autoGeneratedKeys, Runnable onClose) throws SQLException {
+        String key = autoGeneratedKeys + ":" + sql;
+        PreparedStatement statement = checkout(key);
+        if (statement == null) {
+            misses.incrementAndGet();
+            statement = connection.prepareStatement(sql, autoGeneratedKeys);
+        } else {
+            hits.incrementAndGet();
+        }
+        return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                new Class<?>[]{PreparedStatement.class},
+                new Handle(sql, key, statement, metrics == null ? null : metrics.forSql(sql), onClose,
+                        autoGeneratedKeys == java.sql.Statement.RETURN_GENERATED_KEYS));
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public synchronized void close() {
+        for (Deque<PreparedStatement> statements : idle.values()) {
+            for (PreparedStatement statement : statements) {
+                closeQuietly(statement);
+            }
+        }
+        idle.clear();
+        idleCount = 0;
+    }
+
+    private synchronized PreparedStatement checkout(String key) {
+        Deque<PreparedStatement> statements = idle.get(key);
+        if (statements == null || statements.isEmpty()) {
+            return null;
+        }
+        idleCount--;
+        PreparedStatement statement = statements.pop();
+        if (statements.isEmpty()) {
+            idle.remove(key);
+        }
+        return statement;
+    }
+
+    private synchronized void checkin(String key, PreparedStatement statement) {
+        idle.computeIfAbsent(key, k -> new ArrayDeque<>()).push(statement);
+        idleCount++;
+        Iterator<Map.Entry<String, Deque<PreparedStatement>>> eldest = idle.entrySet().iterator();
+        while (idleCount > capacity && eldest.hasNext()) {
+            Deque<PreparedStatement> statements = eldest.next().getValue();
+            closeQuietly(statements.removeLast());
+            idleCount--;
+            if (statements.isEmpty()) {
+                eldest.remove();
+            }
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close cached statement: " + e.getMessage());
+        }
+    }
+
+    // The driver's generated-keys result set is shared by the whole connection, so the key is copied out.
+    private static ResultSet detachedKeys(ResultSet keys) throws SQLException {
+        Object key = null;
+        try (keys) {
+            if (keys.next()) {
+                key = keys.getObject(1);
+            }
+        }
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new KeyRow(key));
+    }
+
+    private static void closeQuietly(ResultSet results) {
+        if (results == null) {
+            return;
+        }
+        try {
+            results.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close result set: " + e.getMessage());
+        }
+    }
+
+    private class Handle implements InvocationHandler {
+        private final String sql;
+        private final String key;
+        private final PreparedStatement statement;
+        private final StatementMetrics.Stats stats;
+        private final Runnable onClose;
+        private final boolean returnsKeys;
+        private Object[] parameters;
+        // Result sets handed out and not yet known to be closed; closed when the handle goes back.
+        private ResultSet results;
+        private ResultSet generatedKeys;
+        private int parameterCount;
+        private boolean closed;
+
+        private Handle(String sql, String key, PreparedStatement statement, StatementMetrics.Stats stats,
+                       Runnable onClose, boolean returnsKeys) {
+            this.sql = sql;
+            this.key = key;
+            this.statement = statement;
+            this.stats = stats;
+            this.onClose = onClose;
+            this.returnsKeys = returnsKeys;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        try {
+                            release();
+                        } finally {
+                            if (onClose != null) {
+                                onClose.run();
+                            }
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                default:
+                    if (closed) {
+                        throw new SQLException("Statement already returned to cache");
+                    }
+                    if (method.getName().equals("getGeneratedKeys") && generatedKeys != null) {
+                        return generatedKeys;
+                    }
+                    if (!method.getName().startsWith("execute")) {
+                        if (slowQueryLog != null) {
+                            remember(method.getName(), args);
+                        }
+                        return track(call(method, args));
+                    }
+                    if (executeLock == null) {
+                        return track(execute(method, args));
+                    }
+                    executeLock.lock();
+                    boolean held = false;
+                    try {
+                        // Re-executing finishes the previous result set, and with it that query's hold.
+                        closeQuietly(results);
+                        results = null;
+                        Object result = execute(method, args);
+                        if (result instanceof ResultSet) {
+                            results = heldUntilClosed((ResultSet) result);
+                            held = true;
+                            return results;
+                        }
+                        if (returnsKeys) {
+                            // Read now: last_insert_rowid() after the lock is dropped may be another thread's insert.
+                            generatedKeys = detachedKeys(statement.getGeneratedKeys());
+                        }
+                        return result;
+                    } finally {
+                        if (!held) {
+                            executeLock.unlock();
+                        }
+                    }
+            }
+        }
+
+        // For queries this is the time to the first row; the rest is read as the caller steps the result set.
+        private Object execute(Method method, Object[] args) throws Throwable {
+            if (stats == null && slowQueryLog == null) {
+                return call(method, args);
+            }
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = call(method, args);
+                failed = false;
+                return result;
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (stats != null) {
+                    stats.record(elapsed, failed);
+                }
+                if (slowQueryLog != null && slowQueryLog.isSlow(elapsed)) {
+                    slowQueryLog.record(connection, sql,
+                            parameters == null ? null : Arrays.copyOf(parameters, parameterCount), elapsed, failed);
+                }
+            }
+        }
+
+        // Keeps the value of each setXxx(index, value, ...) call by its 1-based index.
+        private void remember(String name, Object[] args) {
+            if (name.equals("clearParameters")) {
+                parameters = null;
+                parameterCount = 0;
+                return;
+            }
+            if (!name.startsWith("set") || args == null || args.length < 2 || !(args[0] instanceof Integer)) {
+                return;
+            }
+            int index = (Integer) args[0];
+            if (index < 1 || index > 999) {
+                return;
+            }
+            if (parameters == null || parameters.length < index) {
+                parameters = parameters == null ? new Object[Math.max(index, 8)]
+                        : Arrays.copyOf(parameters, Math.max(index, parameters.length * 2));
+            }
+            parameters[index - 1] = name.equals("setNull") ? null : args[1];
+            parameterCount = Math.max(parameterCount, index);
+        }
+
+        // Closing the result set, or the handle, drops the hold its query took on the execute lock.
+        private ResultSet heldUntilClosed(ResultSet results) {
+            boolean[] released = new boolean[1];
+            return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                        if (method.getName().equals("close") && !released[0]) {
+                            released[0] = true;
+                            try {
+                                results.close();
+                            } finally {
+                                executeLock.unlock();
+                            }
+                            return null;
+                        }
+                        try {
+                            return method.invoke(results, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                    });
+        }
+
+        private Object track(Object result) {
+            if (result instanceof ResultSet) {
+                results = (ResultSet) result;
+            }
+            return result;
+        }
+
+        private Object call(Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        // A result set left open would leave the statement mid-step, so it is closed before reuse.
+        private void release() {
+            closeQuietly(results);
+            closeQuietly(generatedKeys);
+            results = null;
+            generatedKeys = null;
+            try {
+                statement.clearParameters();
+                checkin(key, statement);
+            } catch (SQLException e) {
+                closeQuietly(statement);
+            }
+        }
+    }
+
+    // A one-column result set over the key of the last insert, or no rows if there was none.
+    private static class KeyRow implements InvocationHandler {
+        private final Object key;
+        private int position;
+        private boolean closed;
+
+        private KeyRow(Object key) {
+            this.key = key;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    closed = true;
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "next":
+                    position++;
+                    return key != null && position == 1;
+                case "wasNull":
+                    return false;
+                case "getObject":
+                    return row();
+                case "getLong":
+                    return ((Number) row()).longValue();
+                case "getInt":
+                    return ((Number) row()).intValue();
+                case "getString":
+                    return String.valueOf(row());
+                default:
+                    throw new SQLFeatureNotSupportedException(method.getName() + " on generated keys");
+            }
+        }
+
+        private Object row() throws SQLException {
+            if (closed || key == null || position != 1) {
+                throw new SQLException("No generated key row");
+            }
+            return key;
+        }
+    }
+}
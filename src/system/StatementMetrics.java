@@ -0,0 +1,293 @@
+package system;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count, errors and latency percentiles per statement, keyed by normalized
+ * SQL: whitespace collapsed and literals replaced by '?', so statements that
+ * differ only in inlined values share one entry. Each entry is published as
+ * an MXBean under hotel.db:type=SqlStatement, and the whole table can be
+ * dumped to a file. Lookup by SQL text happens when a statement is prepared;
+ * executions only touch the entry's histogram.
+ */
+public class StatementMetrics {
+    private static final AtomicInteger POOLS = new AtomicInteger();
+    // Bounds the raw-text shortcut when callers inline values into their SQL.
+    private static final int MAX_SQL_TEXTS = 4096;
+
+    public interface SqlStatementMXBean {
+        String getSql();
+
+        long getCount();
+
+        long getErrors();
+
+        double getMeanMicros();
+
+        long getP50Micros();
+
+        long getP90Micros();
+
+        long getP99Micros();
+
+        long getP999Micros();
+
+        long getMaxMicros();
+
+        double getTotalMillis();
+
+        void reset();
+    }
+
+    public interface StatementMetricsMXBean {
+        int getStatementCount();
+
+        long getExecutions();
+
+        long getErrors();
+
+        // Writes the table to the given file and returns its path.
+        String dump(String file) throws IOException;
+
+        void reset();
+    }
+
+    public static class Stats implements SqlStatementMXBean {
+        private final String sql;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong errors = new AtomicLong();
+
+        private Stats(String sql) {
+            this.sql = sql;
+        }
+
+        public void record(long nanos, boolean failed) {
+            latency.record(nanos);
+            if (failed) {
+                errors.incrementAndGet();
+            }
+        }
+
+        @Override
+        public String getSql() {
+            return sql;
+        }
+
+        @Override
+        public long getCount() {
+            return latency.getCount();
+        }
+
+        @Override
+        public long getErrors() {
+            return errors.get();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latency.getMeanMicros();
+        }
+
+        @Override
+        public long getP50Micros() {
+            return latency.percentileMicros(0.50);
+        }
+
+        @Override
+        public long getP90Micros() {
+            return latency.percentileMicros(0.90);
+        }
+
+        @Override
+        public long getP99Micros() {
+            return latency.percentileMicros(0.99);
+        }
+
+        @Override
+        public long getP999Micros() {
+            return latency.percentileMicros(0.999);
+        }
+
+        @Override
+        public long getMaxMicros() {
+            return latency.getMaxMicros();
+        }
+
+        @Override
+        public double getTotalMillis() {
+            return latency.getTotalNanos() / 1e6;
+        }
+
+        @Override
+        public void reset() {
+            latency.reset();
+            errors.set(0);
+        }
+    }
+
+    private final int pool = POOLS.incrementAndGet();
+    private final ConcurrentHashMap<String, Stats> byNormalizedSql = new ConcurrentHashMap<>();
+    // Raw SQL text to its entry, so a repeated prepare skips normalization.
+    private final ConcurrentHashMap<String, Stats> bySql = new ConcurrentHashMap<>();
+    private final AtomicInteger ids = new AtomicInteger();
+    private final List<ObjectName> registered = new ArrayList<>();
+
+    public StatementMetrics() {
+        register("hotel.db:type=StatementMetrics,pool=" + pool, new Summary());
+    }
+
+    public Stats forSql(String sql) {
+        Stats stats = bySql.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        stats = byNormalizedSql.computeIfAbsent(normalize(sql), normalized -> {
+            Stats created = new Stats(normalized);
+            register("hotel.db:type=SqlStatement,pool=" + pool + ",id=" + ids.incrementAndGet(), created);
+            return created;
+        });
+        if (bySql.size() < MAX_SQL_TEXTS) {
+            bySql.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+
+    public List<Stats> snapshot() {
+        List<Stats> all = new ArrayList<>(byNormalizedSql.values());
+        all.sort(Comparator.comparingDouble(Stats::getTotalMillis).reversed());
+        return all;
+    }
+
+    // Busiest statements first, by total time spent executing them.
+    public Path dump(Path file) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            out.printf("# SQL statement latency, %s (microseconds)%n", LocalDateTime.now());
+            out.printf("%10s %8s %10s %8s %8s %8s %8s %10s %12s  %s%n",
+                    "count", "errors", "mean", "p50", "p90", "p99", "p99.9", "max", "total ms", "sql");
+            for (Stats stats : snapshot()) {
+                out.printf("%10d %8d %10.1f %8d %8d %8d %8d %10d %12.1f  %s%n",
+                        stats.getCount(), stats.getErrors(), stats.getMeanMicros(), stats.getP50Micros(),
+                        stats.getP90Micros(), stats.getP99Micros(), stats.getP999Micros(), stats.getMaxMicros(),
+                        stats.getTotalMillis(), stats.getSql());
+            }
+        }
+        return file;
+    }
+
+    public void reset() {
+        byNormalizedSql.values().forEach(Stats::reset);
+    }
+
+    // Takes the MBeans down, e.g. when the database is closed.
+    public synchronized void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registered) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException e) {
+                System.err.println("Failed to unregister " + name + ": " + e.getMessage());
+            }
+        }
+        registered.clear();
+    }
+
+    static String normalize(String sql) {
+        StringBuilder out = new StringBuilder(sql.length());
+        int i = 0;
+        int n = sql.length();
+        while (i < n) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                while (i < n && Character.isWhitespace(sql.charAt(i))) {
+                    i++;
+                }
+                if (out.length() > 0) {
+                    out.append(' ');
+                }
+            } else if (c == '\'') {
+                i++;
+                while (i < n) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < n && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    i++;
+                }
+                i++;
+                out.append('?');
+            } else if (Character.isDigit(c) && (out.length() == 0 || !isIdentifierPart(out.charAt(out.length() - 1)))) {
+                while (i < n && (Character.isDigit(sql.charAt(i)) || sql.charAt(i) == '.')) {
+                    i++;
+                }
+                out.append('?');
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        int end = out.length();
+        while (end > 0 && out.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return out.substring(0, end);
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private synchronized void register(String name, Object bean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            ManagementFactory.getPlatformMBeanServer().registerMBean(bean, objectName);
+            registered.add(objectName);
+        } catch (JMException e) {
+            System.err.println("Failed to register " + name + ": " + e.getMessage());
+        }
+    }
+
+    private class Summary implements StatementMetricsMXBean {
+        @Override
+        public int getStatementCount() {
+            return byNormalizedSql.size();
+        }
+
+        @Override
+        public long getExecutions() {
+            return byNormalizedSql.values().stream().mapToLong(Stats::getCount).sum();
+        }
+
+        @Override
+        public long getErrors() {
+            return byNormalizedSql.values().stream().mapToLong(Stats::getErrors).sum();
+        }
+
+        @Override
+        public String dump(String file) throws IOException {
+            return StatementMetrics.this.dump(Path.of(file)).toAbsolutePath().toString();
+        }
+
+        @Override
+        public void reset() {
+            StatementMetrics.this.reset();
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package system;
+
+import java.sql.SQLException;
+
+@FunctionalInterface
+public interface WriteTransaction<T> {
+    T run() throws SQLException;
+}
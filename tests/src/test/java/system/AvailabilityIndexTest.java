@@ -0,0 +1,101 @@
+package system;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AvailabilityIndexTest {
+    private static final int ROOM = 101;
+
+    @Test
+    void roomWithoutBookingsIsAvailable() {
+        AvailabilityIndex index = new AvailabilityIndex();
+        assertTrue(index.isAvailable(ROOM, 10, 12));
+    }
+
+    @Test
+    void boundaryDaysCountAsTaken() {
+        AvailabilityIndex index = new AvailabilityIndex();
+        index.add(1, ROOM, 10, 12, "PENDING");
+
+        assertFalse(index.isAvailable(ROOM, 12, 14), "check-in on the booked check-out day");
+        assertFalse(index.isAvailable(ROOM, 8, 10), "check-out on the booked check-in day");
+        assertFalse(index.isAvailable(ROOM, 11, 11));
+        assertFalse(index.isAvailable(ROOM, 5, 20));
+        assertTrue(index.isAvailable(ROOM, 13, 15));
+        assertTrue(index.isAvailable(ROOM, 5, 9));
+        assertTrue(index.isAvailable(ROOM + 1, 10, 12));
+    }
+
+    @Test
+    void removingOneOfTwoJoinedBookingsFreesOnlyItsDays() {
+        AvailabilityIndex index = new AvailabilityIndex();
+        index.add(1, ROOM, 10, 12, "CONFIRMED");
+        index.add(2, ROOM, 12, 15, "PENDING");
+
+        index.updateStatus(1, "CANCELLED");
+
+        assertTrue(index.isAvailable(ROOM, 9, 11));
+        assertFalse(index.isAvailable(ROOM, 11, 12));
+        assertFalse(index.isAvailable(ROOM, 15, 16));
+        assertFalse(index.contains(1));
+        assertTrue(index.contains(2));
+    }
+
+    @Test
+    void inactiveStatusesAreNotBookedAndActiveOnesAreKept() {
+        AvailabilityIndex index = new AvailabilityIndex();
+        index.add(1, ROOM, 10, 12, "CANCELLED");
+        assertTrue(index.isAvailable(ROOM, 10, 12));
+
+        index.add(2, ROOM, 10, 12, "PENDING");
+        index.updateStatus(2, "CONFIRMED");
+        assertFalse(index.isAvailable(ROOM, 10, 12));
+
+        index.updateStatus(2, "COMPLETED");
+        assertTrue(index.isAvailable(ROOM, 10, 12));
+    }
+
+    @Test
+    void addingAKnownBookingMovesIt() {
+        AvailabilityIndex index = new AvailabilityIndex();
+        index.add(1, ROOM, 10, 12, "PENDING");
+        index.add(1, ROOM + 1, 20, 22, "PENDING");
+
+        assertTrue(index.isAvailable(ROOM, 10, 12));
+        assertFalse(index.isAvailable(ROOM + 1, 22, 25));
+    }
+
+    @Test
+    void matchesABruteForceCheckUnderRandomChanges() {
+        AvailabilityIndex index = new AvailabilityIndex();
+        Map<Integer, long[]> active = new HashMap<>();
+        Random random = new Random(42);
+        for (int step = 0; step < 5000; step++) {
+            int bookingId = random.nextInt(200);
+            if (random.nextInt(3) == 0) {
+                index.updateStatus(bookingId, "CANCELLED");
+                active.remove(bookingId);
+            } else {
+                int room = ROOM + random.nextInt(3);
+                long checkIn = random.nextInt(365);
+                long checkOut = checkIn + 1 + random.nextInt(10);
+                index.add(bookingId, room, checkIn, checkOut, "PENDING");
+                active.put(bookingId, new long[]{room, checkIn, checkOut});
+            }
+
+            int room = ROOM + random.nextInt(3);
+            long checkIn = random.nextInt(380);
+            long checkOut = checkIn + random.nextInt(8);
+            boolean expected = active.values().stream()
+                    .noneMatch(b -> b[0] == room && b[1] <= checkOut && b[2] >= checkIn);
+            assertTrue(expected == index.isAvailable(room, checkIn, checkOut),
+                    "step " + step + ": room " + room + " from " + checkIn + " to " + checkOut);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package system;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import payment.PaymentStatus;
+
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentQueueTest {
+    @TempDir
+    Path dir;
+
+    private DatabaseHandler dbHandler;
+    private PaymentQueue queue;
+
+    @BeforeEach
+    void open() throws SQLException {
+        dbHandler = new DatabaseHandler("jdbc:sqlite:" + dir.resolve("payments.db"));
+        dbHandler.connect();
+        queue = dbHandler.getPaymentQueue();
+    }
+
+    @AfterEach
+    void close() {
+        dbHandler.closeConnection();
+    }
+
+    @Test
+    void replayingAKeyReturnsTheFirstOutcomeWithoutASecondCharge() throws Exception {
+        int bookingId = insertPendingBooking(300);
+
+        PaymentQueue.Result first = queue.submit("key-1", bookingId, 300, "CARD").get(5, TimeUnit.SECONDS);
+        PaymentQueue.Result replay = queue.submit("key-1", bookingId, 300, "CARD").get(5, TimeUnit.SECONDS);
+
+        assertTrue(first.isCompleted());
+        assertTrue(replay.isCompleted());
+        assertEquals(first.getPaymentId(), replay.getPaymentId());
+        assertEquals(1, count("SELECT COUNT(*) FROM payments WHERE booking_id = " + bookingId));
+        assertEquals(1, count("SELECT COUNT(*) FROM payment_ledger WHERE payment_id = " + first.getPaymentId()));
+        assertEquals(PaymentStatus.COMPLETED, queue.getStatus("key-1"));
+    }
+
+    @Test
+    void replayingAFailedKeyKeepsTheFailure() throws Exception {
+        int bookingId = insertPendingBooking(300);
+
+        PaymentQueue.Result first = queue.submit("key-1", bookingId, 100, "CASH").get(5, TimeUnit.SECONDS);
+        PaymentQueue.Result replay = queue.submit("key-1", bookingId, 300, "CASH").get(5, TimeUnit.SECONDS);
+
+        assertEquals(PaymentStatus.FAILED, first.getStatus());
+        assertEquals(PaymentStatus.FAILED, replay.getStatus());
+        assertEquals("Insufficient payment amount", replay.getMessage());
+        assertEquals(0, count("SELECT COUNT(*) FROM payments"));
+    }
+
+    @Test
+    void aKeyStillInFlightSharesItsFuture() throws Exception {
+        int bookingId = insertPendingBooking(300);
+
+        var first = queue.submit("key-1", bookingId, 300, "CARD");
+        var second = queue.submit("key-1", bookingId, 300, "CARD");
+        if (!first.isDone()) {
+            assertSame(first, second);
+        }
+        assertEquals(first.get(5, TimeUnit.SECONDS).getPaymentId(), second.get(5, TimeUnit.SECONDS).getPaymentId());
+        assertEquals(1, count("SELECT COUNT(*) FROM payments"));
+    }
+
+    @Test
+    void aKeyCannotBeReusedForAnotherBooking() throws Exception {
+        int bookingId = insertPendingBooking(300);
+        int otherBookingId = insertPendingBooking(200);
+        queue.submit("key-1", bookingId, 300, "CARD").get(5, TimeUnit.SECONDS);
+
+        ExecutionException e = assertThrows(ExecutionException.class,
+                () -> queue.submit("key-1", otherBookingId, 200, "CARD").get(5, TimeUnit.SECONDS));
+
+        assertInstanceOf(IllegalArgumentException.class, e.getCause());
+        assertEquals(0, count("SELECT COUNT(*) FROM payments WHERE booking_id = " + otherBookingId));
+    }
+
+    @Test
+    void anUnknownKeyHasNoStatus() throws Exception {
+        assertNull(queue.getStatus("never-submitted"));
+        assertThrows(IllegalArgumentException.class, () -> queue.submit(" ", 1, 100, "CARD"));
+    }
+
+    private int insertPendingBooking(double totalCost) throws SQLException {
+        return dbHandler.inWriteTransaction(() -> {
+            try (PreparedStatement stmt = dbHandler.prepareStatement(
+                    "INSERT INTO bookings (customer_id, room_number, check_in_date, check_out_date, check_in_day, check_out_day, status, total_cost, booking_date) "
+                            + "VALUES (1, 101, '2030-03-09', '2030-03-12', 21982, 21985, 'PENDING', ?, '2030-01-01')",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                stmt.setDouble(1, totalCost);
+                stmt.executeUpdate();
+                try (ResultSet keys = stmt.getGeneratedKeys()) {
+                    keys.next();
+                    return keys.getInt(1);
+                }
+            }
+        });
+    }
+
+    private long count(String sql) throws SQLException {
+        try (PreparedStatement stmt = dbHandler.prepareReadStatement(sql); ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package system;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SchemaMigratorTest {
+    // The database shipped with the project predates migrations, so it is at user_version 0.
+    private static final Path LEGACY_DATABASE = Paths.get("..", "hotel.db");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void createsTheSchemaInAnEmptyDatabase() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("empty.db"))) {
+            assertEquals(0, queryLong(connection, "PRAGMA user_version"));
+
+            assertEquals(SchemaMigrator.latestVersion(), new SchemaMigrator().migrate(connection));
+
+            assertEquals(SchemaMigrator.latestVersion(), queryLong(connection, "PRAGMA user_version"));
+            for (String table : new String[]{"users", "rooms", "bookings", "payments", "booking_groups",
+                    "booking_daily_rollup", "payment_daily_rollup", "payment_intents", "payment_ledger"}) {
+                assertEquals(1, queryLong(connection,
+                        "SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'"), table);
+            }
+            assertEquals(0, new SchemaMigrator().migrate(connection));
+        }
+    }
+
+    @Test
+    void upgradesTheLegacyDatabaseAndBackfillsItsRows() throws Exception {
+        Path copy = dir.resolve("legacy.db");
+        Files.copy(LEGACY_DATABASE, copy);
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + copy)) {
+            assertEquals(0, queryLong(connection, "PRAGMA user_version"));
+            long bookings = queryLong(connection, "SELECT COUNT(*) FROM bookings");
+
+            assertEquals(SchemaMigrator.latestVersion(), new SchemaMigrator().migrate(connection));
+
+            assertEquals(SchemaMigrator.latestVersion(), queryLong(connection, "PRAGMA user_version"));
+            assertEquals(bookings, queryLong(connection, "SELECT COUNT(*) FROM bookings"));
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery("SELECT check_in_date, check_out_date, check_in_day, check_out_day FROM bookings")) {
+                while (rs.next()) {
+                    assertEquals(AvailabilityIndex.toEpochDay(rs.getString(1)), rs.getLong(3), rs.getString(1));
+                    assertEquals(AvailabilityIndex.toEpochDay(rs.getString(2)), rs.getLong(4), rs.getString(2));
+                }
+            }
+            assertEquals(bookings, queryLong(connection, "SELECT COALESCE(SUM(bookings), 0) FROM booking_daily_rollup"));
+            assertEquals(queryLong(connection, "SELECT COUNT(*) FROM payments"),
+                    queryLong(connection, "SELECT COALESCE(SUM(payments), 0) FROM payment_daily_rollup"));
+        }
+    }
+
+    @Test
+    void triggersFillTheDayColumnsForNewRows() throws Exception {
+        try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("fresh.db"))) {
+            new SchemaMigrator().migrate(connection);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("INSERT INTO bookings (customer_id, room_number, check_in_date, check_out_date, status, total_cost, booking_date) "
+                        + "VALUES (1, 101, '2030-03-09', '2030-03-12', 'PENDING', 300, '2030-01-01')");
+            }
+            assertEquals(LocalDate.of(2030, 3, 9).toEpochDay(), queryLong(connection, "SELECT check_in_day FROM bookings"));
+            assertEquals(LocalDate.of(2030, 3, 12).toEpochDay(), queryLong(connection, "SELECT check_out_day FROM bookings"));
+        }
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement(); ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}